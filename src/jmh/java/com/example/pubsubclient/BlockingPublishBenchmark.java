@@ -0,0 +1,117 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@code concurrency} callers that each make one blocking publish against a
+ * stub answering after {@code latencyMillis}, every caller on a thread of its
+ * own as a thread-per-request service would run them. Compares platform with
+ * virtual threads for the callers and the client's HttpClient; on runtimes
+ * older than Java 21 the build runs the {@code PLATFORM} variants only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BlockingPublishBenchmark {
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    ThreadMode threadMode;
+
+    @Param({"100", "1000"})
+    int concurrency;
+
+    @Param({"10"})
+    int latencyMillis;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ScheduledExecutorService replies;
+    private PubSubClient client;
+    private ThreadFactory callers;
+    private List<EventPublishRequest<String>> events;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        callers = Threads.factory(threadMode, "publish-caller");
+        byte[] published = "1".getBytes(StandardCharsets.UTF_8);
+        replies = Executors.newScheduledThreadPool(2);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        serverExecutor = Executors.newFixedThreadPool(2);
+        server.setExecutor(serverExecutor);
+        // the stub waits without holding a thread, so it is not what limits concurrency
+        server.createContext("/org/topics/topic/events", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            replies.schedule(() -> reply(exchange, published), latencyMillis, TimeUnit.MILLISECONDS);
+        });
+        server.start();
+        client = new PubSubClient("http://localhost:" + server.getAddress().getPort(), null, null, null,
+                threadMode);
+        events = List.of(new EventPublishRequest<>("payload"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        replies.shutdownNow();
+    }
+
+    @Benchmark
+    public int publishConcurrently() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrency);
+        AtomicInteger published = new AtomicInteger();
+        for (int i = 0; i < concurrency; i++) {
+            callers.newThread(() -> {
+                try {
+                    published.addAndGet(client.publishEvents("org", "topic", events));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        return published.get();
+    }
+
+    private static void reply(HttpExchange exchange, byte[] body) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+}
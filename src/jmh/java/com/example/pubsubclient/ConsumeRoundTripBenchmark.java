@@ -0,0 +1,88 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * One {@code consumeEvents} call against an in-process stub: read a batch,
+ * hand it to a handler and commit every event. The stub answers with
+ * pre-rendered bodies, so the time is spent in the client and the loopback
+ * connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConsumeRoundTripBenchmark {
+
+    @Param({"1", "100"})
+    int batchSize;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private PubSubClient client;
+    private EventsHandler handler;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] events = Payloads.readResponse("flat", batchSize);
+        byte[] committed = Integer.toString(batchSize).getBytes(StandardCharsets.UTF_8);
+        // without it small responses wait for delayed ACKs and the round trip measures TCP timers
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverExecutor = Executors.newSingleThreadExecutor();
+        server.setExecutor(serverExecutor);
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> reply(exchange, events));
+        server.createContext("/org/topics/topic/subscriptions/sub/event-commits",
+                exchange -> reply(exchange, committed));
+        server.start();
+        client = new PubSubClient("http://localhost:" + server.getAddress().getPort());
+        handler = (batch, commitFn) -> {
+            List<UUID> ids = new ArrayList<>(batch.size());
+            for (var event : batch) {
+                ids.add(event.id());
+            }
+            commitFn.apply(ids);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int consumeEvents() throws Exception {
+        return client.consumeEvents("org", "topic", "sub", batchSize, handler);
+    }
+
+    private static void reply(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.pubsubclient;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Deterministic benchmark inputs: every run of a benchmark sees the same
+ * events, so results are comparable between machines and commits.
+ */
+final class Payloads {
+
+    record Order(String orderId, String customerId, long amountCents, List<String> skus) {
+    }
+
+    record Shipment(String id, Address from, Address to, List<Parcel> parcels) {
+    }
+
+    record Address(String street, String city, String country) {
+    }
+
+    record Parcel(int weightGrams, Map<String, String> labels) {
+    }
+
+    private static final long SEED = 42L;
+
+    private Payloads() {
+    }
+
+    /**
+     * {@code flat}: a small record, {@code nested}: records within lists and
+     * maps, {@code text}: one 1 KiB string.
+     */
+    static Object payload(String shape, int index, Random random) {
+        switch (shape) {
+            case "flat":
+                return new Order("order-" + index, "customer-" + random.nextInt(10_000), random.nextInt(100_000),
+                        List.of("sku-" + random.nextInt(100), "sku-" + random.nextInt(100)));
+            case "nested":
+                return new Shipment("shipment-" + index,
+                        new Address(index + " Main Street", "Springfield", "US"),
+                        new Address(random.nextInt(1_000) + " Harbour Road", "Portsmouth", "GB"),
+                        List.of(new Parcel(random.nextInt(20_000), Map.of("fragile", "yes", "priority", "2")),
+                                new Parcel(random.nextInt(20_000), Map.of("fragile", "no"))));
+            case "text":
+                StringBuilder text = new StringBuilder(1024);
+                while (text.length() < 1024) {
+                    text.append((char) ('a' + random.nextInt(26)));
+                }
+                return text.toString();
+            default:
+                throw new IllegalArgumentException("Unknown payload shape: " + shape);
+        }
+    }
+
+    static List<EventPublishRequest<Object>> publishBatch(String shape, int batchSize) {
+        Random random = new Random(SEED);
+        List<EventPublishRequest<Object>> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new EventPublishRequest<>(payload(shape, i, random)));
+        }
+        return batch;
+    }
+
+    /** Body of a read response carrying {@code batchSize} events. */
+    static byte[] readResponse(String shape, int batchSize) throws JsonProcessingException {
+        Random random = new Random(SEED);
+        List<Map<String, Object>> events = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            events.add(Map.of(
+                    "id", new UUID(SEED, i),
+                    "data", payload(shape, i, random),
+                    "createdAt", Instant.ofEpochSecond(1_700_000_000L + i).toString()));
+        }
+        return EventCodec.JSON.mapper().writeValueAsBytes(events);
+    }
+}
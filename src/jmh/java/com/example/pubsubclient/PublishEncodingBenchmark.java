@@ -0,0 +1,56 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+
+/**
+ * Encoding a {@code publishEvents} request body into a pooled buffer. The GC
+ * profiler's {@code gc.alloc.rate.norm} divided by {@code batchSize} gives
+ * the bytes allocated per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PublishEncodingBenchmark {
+
+    @Param({"1", "10", "100"})
+    int batchSize;
+
+    @Param({"flat", "nested", "text"})
+    String shape;
+
+    private PubSubClient client;
+    private List<EventPublishRequest<Object>> batch;
+
+    @Setup
+    public void setup() {
+        client = new PubSubClient("http://localhost");
+        batch = Payloads.publishBatch(shape, batchSize);
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        PooledBuffer body = client.encode(batch, EventCodec.JSON);
+        int size = body.size();
+        client.release(body);
+        return size;
+    }
+
+    @Benchmark
+    public byte[] encodeViaString() throws IOException {
+        return EventCodec.JSON.mapper().writeValueAsString(batch).getBytes(StandardCharsets.UTF_8);
+    }
+}
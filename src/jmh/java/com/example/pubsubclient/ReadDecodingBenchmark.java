@@ -0,0 +1,74 @@
+package com.example.pubsubclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.pubsubclient.model.EventResponse;
+import com.example.pubsubclient.model.LazyPayload;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+/**
+ * Decoding a {@code readEvents} response body into {@link EventResponse}s,
+ * either as plain maps, straight into the payload record or into
+ * {@link LazyPayload}s that are not decoded further.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadDecodingBenchmark {
+
+    @Param({"1", "10", "100"})
+    int batchSize;
+
+    @Param({"flat", "nested"})
+    String shape;
+
+    private byte[] body;
+    private ObjectReader untyped;
+    private ObjectReader typed;
+    private ObjectReader lazy;
+
+    @Setup
+    public void setup() throws IOException {
+        body = Payloads.readResponse(shape, batchSize);
+        CodecContext json = new CodecContext(EventCodec.JSON);
+        untyped = json.eventReader(null);
+        Class<?> payloadType = shape.equals("flat") ? Payloads.Order.class : Payloads.Shipment.class;
+        typed = json.eventReader(TypeFactory.defaultInstance().constructType(payloadType));
+        lazy = json.eventReader(TypeFactory.defaultInstance().constructType(LazyPayload.class));
+    }
+
+    @Benchmark
+    public List<EventResponse<Object>> decodeUntyped() throws IOException {
+        return decode(untyped);
+    }
+
+    @Benchmark
+    public List<EventResponse<Object>> decodeTyped() throws IOException {
+        return decode(typed);
+    }
+
+    @Benchmark
+    public List<EventResponse<Object>> decodeLazy() throws IOException {
+        return decode(lazy);
+    }
+
+    private List<EventResponse<Object>> decode(ObjectReader reader) throws IOException {
+        try (MappingIterator<EventResponse<Object>> events = reader.readValues(new ByteArrayInputStream(body))) {
+            return events.readAll();
+        }
+    }
+}
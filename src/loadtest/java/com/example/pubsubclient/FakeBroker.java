@@ -0,0 +1,251 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-memory stand-in for the pub-sub-service, serving the endpoints
+ * {@link PubSubClient} calls. Topics must be {@link #createTopic created}
+ * first and answer 404 otherwise. A subscription starts at the beginning of
+ * its topic, answers 204 when nothing is left to read and 409 while another
+ * read of it is still being served. Events that are not committed within the
+ * redelivery timeout are handed out again.
+ */
+final class FakeBroker implements AutoCloseable {
+
+    private static final TypeReference<List<Map<String, JsonNode>>> PUBLISH_BODY = new TypeReference<>() {
+    };
+    private static final TypeReference<List<UUID>> COMMIT_BODY = new TypeReference<>() {
+    };
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long redeliveryNanos;
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final ObjectMapper responseMapper = EventCodec.JSON.mapper();
+
+    final LongAdder published = new LongAdder();
+    final LongAdder delivered = new LongAdder();
+    final LongAdder redelivered = new LongAdder();
+    final LongAdder committed = new LongAdder();
+    final LongAdder emptyReads = new LongAdder();
+    final LongAdder conflicts = new LongAdder();
+
+    FakeBroker(int threads, long redeliveryMillis) throws IOException {
+        // answer small responses right away instead of waiting for delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.redeliveryNanos = TimeUnit.MILLISECONDS.toNanos(redeliveryMillis);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", this::route);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    void createTopic(String org, String topic) {
+        topics.putIfAbsent(org + "/" + topic, new Topic());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+            String method = exchange.getRequestMethod();
+            Topic topic = path.length >= 4 && path[1].equals("topics") ? topics.get(path[0] + "/" + path[2]) : null;
+            if (topic == null) {
+                reply(exchange, 404, "not found");
+            } else if (path.length == 4 && path[3].equals("events") && method.equals("POST")) {
+                publish(exchange, topic);
+            } else if (path.length == 6 && path[3].equals("subscriptions") && path[5].equals("events")
+                    && method.equals("GET")) {
+                read(exchange, topic.subscription(path[4]), batchSize(exchange));
+            } else if (path.length == 6 && path[3].equals("subscriptions") && path[5].equals("event-commits")
+                    && method.equals("POST")) {
+                commit(exchange, topic.subscription(path[4]));
+            } else {
+                reply(exchange, 404, "not found");
+            }
+        } catch (IOException | RuntimeException e) {
+            reply(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void publish(HttpExchange exchange, Topic topic) throws IOException {
+        List<Map<String, JsonNode>> requests = codec(exchange).mapper()
+                .readValue(exchange.getRequestBody().readAllBytes(), PUBLISH_BODY);
+        String createdAt = Instant.now().toString().substring(0, 19) + "Z";
+        synchronized (topic) {
+            for (Map<String, JsonNode> request : requests) {
+                topic.log.add(new StoredEvent(UUID.randomUUID(), request.get("data"), createdAt));
+            }
+        }
+        published.add(requests.size());
+        reply(exchange, 200, Integer.toString(requests.size()));
+    }
+
+    private void read(HttpExchange exchange, Subscription subscription, int batchSize) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        if (!subscription.reading.tryLock()) {
+            conflicts.increment();
+            reply(exchange, 409, "conflict");
+            return;
+        }
+        try {
+            List<StoredEvent> batch = subscription.next(batchSize);
+            if (batch.isEmpty()) {
+                emptyReads.increment();
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            delivered.add(batch.size());
+            List<Map<String, Object>> body = new ArrayList<>(batch.size());
+            for (StoredEvent event : batch) {
+                body.add(Map.of("id", event.id(), "data", event.data(), "createdAt", event.createdAt()));
+            }
+            byte[] bytes = responseMapper.writeValueAsBytes(body);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            subscription.reading.unlock();
+        }
+    }
+
+    private void commit(HttpExchange exchange, Subscription subscription) throws IOException {
+        List<UUID> ids = codec(exchange).mapper().readValue(exchange.getRequestBody().readAllBytes(), COMMIT_BODY);
+        int count = subscription.commit(ids);
+        committed.add(count);
+        reply(exchange, 200, Integer.toString(count));
+    }
+
+    private static EventCodec codec(HttpExchange exchange) {
+        String type = String.valueOf(exchange.getRequestHeaders().getFirst("Content-Type"));
+        for (EventCodec codec : List.of(EventCodec.SMILE, EventCodec.CBOR)) {
+            if (type.startsWith(codec.contentType())) {
+                return codec;
+            }
+        }
+        return EventCodec.JSON;
+    }
+
+    private static int batchSize(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("batchSize=")) {
+                    return Integer.parseInt(param.substring("batchSize=".length()));
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private record StoredEvent(UUID id, JsonNode data, String createdAt) {
+    }
+
+    private final class Topic {
+        private final List<StoredEvent> log = new ArrayList<>();
+        private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+        Subscription subscription(String name) {
+            return subscriptions.computeIfAbsent(name, n -> new Subscription(this));
+        }
+    }
+
+    private final class Subscription {
+        private final Topic topic;
+        private final ReentrantLock reading = new ReentrantLock();
+        /** Handed out and not committed yet, in delivery order. */
+        private final Map<UUID, Delivery> unacked = new LinkedHashMap<>();
+        private int offset;
+
+        Subscription(Topic topic) {
+            this.topic = topic;
+        }
+
+        synchronized List<StoredEvent> next(int batchSize) {
+            long now = System.nanoTime();
+            List<StoredEvent> batch = new ArrayList<>(batchSize);
+            List<Delivery> renewed = new ArrayList<>();
+            Iterator<Delivery> expired = unacked.values().iterator();
+            while (batch.size() < batchSize && expired.hasNext()) {
+                Delivery delivery = expired.next();
+                if (delivery.deadline() - now > 0) {
+                    break;
+                }
+                expired.remove();
+                renewed.add(new Delivery(delivery.event(), now + redeliveryNanos));
+                batch.add(delivery.event());
+                redelivered.increment();
+            }
+            synchronized (topic) {
+                while (batch.size() < batchSize && offset < topic.log.size()) {
+                    StoredEvent event = topic.log.get(offset++);
+                    renewed.add(new Delivery(event, now + redeliveryNanos));
+                    batch.add(event);
+                }
+            }
+            for (Delivery delivery : renewed) {
+                unacked.put(delivery.event().id(), delivery);
+            }
+            return batch;
+        }
+
+        synchronized int commit(List<UUID> ids) {
+            int count = 0;
+            for (UUID id : ids) {
+                if (unacked.remove(id) != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private record Delivery(StoredEvent event, long deadline) {
+    }
+}
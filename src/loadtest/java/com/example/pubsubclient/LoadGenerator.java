@@ -0,0 +1,219 @@
+package com.example.pubsubclient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.example.pubsubclient.model.EventResponse;
+
+/**
+ * Drives N {@link EventPublisher}s at a fixed total rate and M
+ * {@link EventConsumer}s sharing one subscription, by default against an
+ * embedded {@link FakeBroker}, and reports throughput and end-to-end latency
+ * from publish to handler delivery.
+ *
+ * <p>Every event carries the time it was <em>scheduled</em> to be published.
+ * Latency is measured from that time rather than from when the publisher got
+ * around to sending it, so a stalled publisher shows up as latency of the
+ * events it held back instead of silently lowering the rate (coordinated
+ * omission). The uncorrected latency, measured from the actual send, is
+ * reported next to it.
+ *
+ * <p>Options are given as {@code --name=value}, see {@link Options}.
+ */
+public final class LoadGenerator {
+
+    /** Payload of every generated event. */
+    record LoadEvent(int publisher, long sequence, long intendedNanos, long sentNanos, String padding) {
+    }
+
+    /**
+     * @param publishers     number of publisher threads
+     * @param consumers      number of consumers on the shared subscription
+     * @param rate           events per second over all publishers
+     * @param warmupSeconds  seconds run before measuring
+     * @param durationSeconds seconds measured
+     * @param batchSize      consumer batch size
+     * @param intervalMillis consumer polling interval
+     * @param payloadBytes   padding added to every payload
+     * @param url            service to run against instead of the embedded broker
+     */
+    record Options(int publishers, int consumers, int rate, int warmupSeconds, int durationSeconds, int batchSize,
+            long intervalMillis, int payloadBytes, String url) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            Options options = new Options(
+                    Integer.parseInt(values.getOrDefault("publishers", "4")),
+                    Integer.parseInt(values.getOrDefault("consumers", "2")),
+                    Integer.parseInt(values.getOrDefault("rate", "1000")),
+                    Integer.parseInt(values.getOrDefault("warmup", "5")),
+                    Integer.parseInt(values.getOrDefault("duration", "30")),
+                    Integer.parseInt(values.getOrDefault("batchSize", "100")),
+                    Long.parseLong(values.getOrDefault("interval", "10")),
+                    Integer.parseInt(values.getOrDefault("payloadBytes", "256")),
+                    values.get("url"));
+            if (options.publishers() < 1 || options.consumers() < 1 || options.rate() < 1) {
+                throw new IllegalArgumentException("publishers, consumers and rate must be positive");
+            }
+            return options;
+        }
+    }
+
+    private static final String ORG = "loadtest";
+    private static final String TOPIC = "events";
+    private static final String SUBSCRIPTION = "load";
+
+    private final Options options;
+    private final Histogram corrected = new Histogram();
+    private final Histogram uncorrected = new Histogram();
+    private final Histogram scheduleLag = new Histogram();
+    private final LongAdder publishFailures = new LongAdder();
+    private final LongAdder consumeFailures = new LongAdder();
+    private final LongAdder measuredDeliveries = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+    private volatile long measureFrom;
+    private volatile long measureUntil;
+
+    LoadGenerator(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (options.url() != null) {
+            new LoadGenerator(options).run(options.url(), null);
+            return;
+        }
+        try (FakeBroker broker = new FakeBroker(Math.max(4, options.consumers() + options.publishers()), 30_000)) {
+            broker.createTopic(ORG, TOPIC);
+            new LoadGenerator(options).run(broker.baseUrl(), broker);
+        }
+    }
+
+    void run(String baseUrl, FakeBroker broker) throws InterruptedException {
+        PubSubClient client = new PubSubClient(baseUrl);
+        String padding = "x".repeat(options.payloadBytes());
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+        measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+
+        List<EventConsumer<LoadEvent>> consumers = new ArrayList<>();
+        for (int i = 0; i < options.consumers(); i++) {
+            EventConsumerConfig<LoadEvent> config = EventConsumerConfig.of(ORG, TOPIC, SUBSCRIPTION,
+                    options.batchSize(), options.intervalMillis()).withPayloadType(LoadEvent.class);
+            TypedEventsHandler<LoadEvent> handler = this::handle;
+            EventConsumer<LoadEvent> consumer = new EventConsumer<>(client, handler, config,
+                    e -> consumeFailures.increment());
+            consumers.add(consumer);
+            consumer.start();
+        }
+
+        List<Thread> publishers = new ArrayList<>();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(options.publishers()) / options.rate();
+        for (int i = 0; i < options.publishers(); i++) {
+            int publisherId = i;
+            // stagger the publishers so their sends spread over the interval
+            long first = start + intervalNanos * i / options.publishers();
+            Thread thread = new Thread(() -> publish(client, publisherId, first, intervalNanos, padding),
+                    "load-publisher-" + i);
+            publishers.add(thread);
+            thread.start();
+        }
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+        // let the consumers drain what is still in flight
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (broker != null && deliveries.sum() < broker.published.sum() && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        consumers.forEach(EventConsumer::close);
+
+        report(client, broker);
+    }
+
+    private void publish(PubSubClient client, int publisherId, long first, long intervalNanos, String padding) {
+        EventPublisher<LoadEvent> publisher = new EventPublisher<>(new EventPublisherConfig(ORG, TOPIC, SUBSCRIPTION),
+                client, (error, events) -> publishFailures.increment());
+        for (long sequence = 0; ; sequence++) {
+            long intended = first + sequence * intervalNanos;
+            if (intended - measureUntil >= 0) {
+                return;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long sent = System.nanoTime();
+            if (intended - measureFrom >= 0) {
+                scheduleLag.record(sent - intended);
+            }
+            publisher.publish(new EventPublishRequest<>(new LoadEvent(publisherId, sequence, intended, sent, padding)));
+        }
+    }
+
+    private void handle(List<EventResponse<LoadEvent>> events, Function<List<UUID>, Integer> commitFn) {
+        long now = System.nanoTime();
+        List<UUID> ids = new ArrayList<>(events.size());
+        for (EventResponse<LoadEvent> event : events) {
+            LoadEvent load = event.data();
+            if (load.intendedNanos() - measureFrom >= 0 && load.intendedNanos() - measureUntil < 0) {
+                corrected.record(now - load.intendedNanos());
+                uncorrected.record(now - load.sentNanos());
+                measuredDeliveries.increment();
+            }
+            ids.add(event.id());
+        }
+        deliveries.add(events.size());
+        commitFn.apply(ids);
+    }
+
+    private void report(PubSubClient client, FakeBroker broker) {
+        double seconds = options.durationSeconds();
+        System.out.printf("publishers=%d consumers=%d target=%d/s batchSize=%d payload=%dB%n",
+                options.publishers(), options.consumers(), options.rate(), options.batchSize(),
+                options.payloadBytes());
+        System.out.printf("throughput: %.1f events/s delivered (%d measured), publish failures=%d, "
+                        + "consume failures=%d%n",
+                measuredDeliveries.sum() / seconds, measuredDeliveries.sum(), publishFailures.sum(),
+                consumeFailures.sum());
+        printLatency("publish -> handler (corrected)", corrected);
+        printLatency("publish -> handler (uncorrected)", uncorrected);
+        // large values mean the publishers cannot keep up with the target rate
+        printLatency("publisher schedule lag", scheduleLag);
+        EndpointMetrics publish = client.metrics().endpoint(Endpoint.PUBLISH);
+        printLatency("publish request", publish.latency());
+        printLatency("read request", client.metrics().endpoint(Endpoint.READ).latency());
+        if (broker != null) {
+            System.out.printf("broker: published=%d delivered=%d redelivered=%d committed=%d empty reads=%d "
+                            + "conflicts=%d%n",
+                    broker.published.sum(), broker.delivered.sum(), broker.redelivered.sum(),
+                    broker.committed.sum(), broker.emptyReads.sum(), broker.conflicts.sum());
+        }
+    }
+
+    private static void printLatency(String name, Histogram histogram) {
+        System.out.printf("%-34s p50=%8.2fms p90=%8.2fms p99=%8.2fms p99.9=%8.2fms max=%8.2fms (n=%d)%n", name,
+                millis(histogram.percentile(0.5)), millis(histogram.percentile(0.9)),
+                millis(histogram.percentile(0.99)), millis(histogram.percentile(0.999)), millis(histogram.max()),
+                histogram.count());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.pubsubclient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch size of the next read of a consumer with {@link BatchSizing}: grows
+ * additively after full batches that stayed within the handler time target
+ * and the response size limit, and is cut multiplicatively when a batch
+ * exceeds either of them or fails. Cuts never go below the size the last
+ * batch projects to fit the limits, so one slow batch does not collapse it.
+ */
+final class BatchSizeController {
+
+    private final BatchSizing sizing;
+    private final long targetNanos;
+    private final ClientMetrics.BatchSizeGauge gauge;
+    private volatile int size;
+    /** Whether the last read returned as many events as it asked for. */
+    private boolean lastReadFull;
+    /** Response bytes per event of the last non-empty read, 0 while unknown. */
+    private double bytesPerEvent;
+
+    BatchSizeController(EventConsumerConfig<?> config, ClientMetrics metrics) {
+        this.sizing = config.batchSizing();
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(sizing.targetHandleMillis());
+        this.size = clamp(config.batchSize());
+        this.gauge = metrics.batchSizeStarted(config, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Records a read of {@code received} events in {@code bytes}; 0 bytes when the size is unknown. */
+    synchronized void onRead(int requested, int received, long bytes) {
+        if (received == 0) {
+            return;
+        }
+        lastReadFull = received >= requested;
+        if (bytes <= 0) {
+            return;
+        }
+        bytesPerEvent = (double) bytes / received;
+        if (bytes > sizing.maxResponseBytes()) {
+            cut(sizing.maxResponseBytes() / bytesPerEvent);
+        }
+    }
+
+    /** Records that the handler took {@code handlerNanos} for {@code events}. */
+    synchronized void onHandled(int events, long handlerNanos) {
+        if (events == 0) {
+            return;
+        }
+        double fitsTarget = (double) targetNanos * events / Math.max(1, handlerNanos);
+        if (handlerNanos > targetNanos) {
+            cut(fitsTarget);
+        } else if (lastReadFull) {
+            double fitsBytes = bytesPerEvent > 0 ? sizing.maxResponseBytes() / bytesPerEvent : Double.MAX_VALUE;
+            update(Math.min((double) size + sizing.increment(), Math.min(fitsTarget, fitsBytes)));
+        }
+    }
+
+    /** A handler failure or a conflict on read. */
+    synchronized void onFailure() {
+        update(size * sizing.decreaseFactor());
+    }
+
+    /** Stops reporting the size once the consumer is closed. */
+    void close() {
+        gauge.close();
+    }
+
+    private void cut(double projected) {
+        update(Math.min(size, Math.max(size * sizing.decreaseFactor(), projected)));
+    }
+
+    private void update(double next) {
+        int updated = clamp((int) Math.min(Integer.MAX_VALUE, next));
+        if (updated != size) {
+            size = updated;
+            gauge.set(updated);
+        }
+    }
+
+    private int clamp(int batchSize) {
+        return Math.max(sizing.minBatchSize(), Math.min(sizing.maxBatchSize(), batchSize));
+    }
+}
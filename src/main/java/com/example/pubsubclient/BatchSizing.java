@@ -0,0 +1,38 @@
+package com.example.pubsubclient;
+
+/**
+ * Limits for adapting the batch size of {@link EventConsumer} reads. After a
+ * full batch that was handled within {@code targetHandleMillis}, the next read
+ * asks for {@code increment} more events, as long as the batch is projected
+ * to stay within the target time and {@code maxResponseBytes}. A batch over
+ * either limit, a handler failure or a 409 conflict cuts the size by
+ * {@code decreaseFactor}, or straight to the projected size when that is
+ * larger.
+ *
+ * @param minBatchSize       smallest batch size asked for
+ * @param maxBatchSize       largest batch size asked for
+ * @param targetHandleMillis handler time per batch the size is tuned towards
+ * @param maxResponseBytes   largest response body a batch should produce
+ * @param increment          events added to the size after a full batch
+ * @param decreaseFactor     fraction of the size, between 0 and 1, kept after a cut
+ */
+public record BatchSizing(
+        int minBatchSize,
+        int maxBatchSize,
+        long targetHandleMillis,
+        long maxResponseBytes,
+        int increment,
+        double decreaseFactor
+) {
+    public BatchSizing {
+        if (minBatchSize <= 0 || maxBatchSize < minBatchSize || targetHandleMillis <= 0 || maxResponseBytes <= 0
+                || increment <= 0 || decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("Invalid batch sizing");
+        }
+    }
+
+    /** Grows by a fiftieth of the maximum per full batch and halves on a cut. */
+    public BatchSizing(int minBatchSize, int maxBatchSize, long targetHandleMillis, long maxResponseBytes) {
+        this(minBatchSize, maxBatchSize, targetHandleMillis, maxResponseBytes, Math.max(1, maxBatchSize / 50), 0.5);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.pubsubclient;
+
+/**
+ * Thresholds for the accumulating mode of {@link EventPublisher}. Buffered
+ * events are published as one request as soon as any of the limits is reached.
+ *
+ * @param maxEvents    maximum number of events per request
+ * @param maxBytes     maximum serialized size of the events in one request
+ * @param lingerMillis maximum time an event waits in the buffer
+ */
+public record BatchingConfig(
+        int maxEvents,
+        long maxBytes,
+        long lingerMillis
+) {
+    public BatchingConfig {
+        if (maxEvents <= 0 || maxBytes <= 0 || lingerMillis < 0) {
+            throw new IllegalArgumentException("Batching limits must be positive");
+        }
+    }
+}
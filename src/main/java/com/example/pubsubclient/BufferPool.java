@@ -0,0 +1,37 @@
+package com.example.pubsubclient;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of {@link PooledBuffer}s for request bodies. Buffers that grew
+ * beyond {@code maxRetainedBytes} are left to the garbage collector so a
+ * single large request does not pin its memory.
+ */
+final class BufferPool {
+
+    private final BlockingQueue<PooledBuffer> free;
+    private final int initialCapacity;
+    private final int maxRetainedBytes;
+
+    BufferPool(int maxPooled, int initialCapacity, int maxRetainedBytes) {
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    PooledBuffer acquire() {
+        PooledBuffer buffer = free.poll();
+        if (buffer == null) {
+            return new PooledBuffer(initialCapacity);
+        }
+        buffer.reset();
+        return buffer;
+    }
+
+    void release(PooledBuffer buffer) {
+        if (buffer.capacity() <= maxRetainedBytes) {
+            free.offer(buffer);
+        }
+    }
+}
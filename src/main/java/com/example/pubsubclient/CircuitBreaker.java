@@ -0,0 +1,114 @@
+package com.example.pubsubclient;
+
+import java.util.concurrent.TimeUnit;
+
+/** Circuit breaker of one {@link Endpoint}, see {@link CircuitBreakerConfig}. */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final CircuitBreakerConfig config;
+    /** Outcomes of the recent attempts, {@code true} for failures. */
+    private final boolean[] window;
+    private int next;
+    private int calls;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trials;
+    private int trialSuccesses;
+
+    CircuitBreaker(CircuitBreakerConfig config) {
+        this.config = config;
+        this.window = new boolean[config.windowSize()];
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && openElapsed()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /** Whether an attempt may be made; every permitted attempt must be followed by one outcome. */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (!openElapsed()) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trials = 0;
+            trialSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trials >= config.halfOpenCalls()) {
+                return false;
+            }
+            trials++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialSuccesses >= config.halfOpenCalls()) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (calls >= config.minimumCalls() && failures >= config.failureRateThreshold() * calls) {
+            open();
+        }
+    }
+
+    /** The permitted attempt ended without telling anything about the endpoint's health. */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && trials > trialSuccesses) {
+            trials--;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        calls = 0;
+        failures = 0;
+        next = 0;
+    }
+
+    private boolean openElapsed() {
+        return System.nanoTime() - openedAt >= TimeUnit.MILLISECONDS.toNanos(config.openMillis());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.pubsubclient;
+
+/**
+ * Per-endpoint circuit breaker of {@link PubSubClient}. The breaker opens
+ * when at least {@code failureRateThreshold} of the last {@code windowSize}
+ * attempts failed, provided {@code minimumCalls} attempts were made. While
+ * open, requests fail right away with a
+ * {@link com.example.pubsubclient.exception.CircuitOpenException}. After
+ * {@code openMillis} up to {@code halfOpenCalls} trial requests are let
+ * through: the breaker closes once they all succeed and opens again on the
+ * first failure. Failures are transport errors and the retryable statuses of
+ * the client's {@link RetryPolicy}, or 5xx, 408 and 429 without one.
+ *
+ * @param windowSize           number of recent attempts considered
+ * @param minimumCalls         attempts needed before the breaker may open
+ * @param failureRateThreshold failure fraction, between 0 and 1, that opens the breaker
+ * @param openMillis           time the breaker stays open
+ * @param halfOpenCalls        trial requests before closing again
+ */
+public record CircuitBreakerConfig(
+        int windowSize,
+        int minimumCalls,
+        double failureRateThreshold,
+        long openMillis,
+        int halfOpenCalls
+) {
+    public CircuitBreakerConfig {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize || failureRateThreshold <= 0
+                || failureRateThreshold > 1 || openMillis < 0 || halfOpenCalls <= 0) {
+            throw new IllegalArgumentException("Invalid circuit breaker config");
+        }
+    }
+}
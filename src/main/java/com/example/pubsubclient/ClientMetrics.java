@@ -0,0 +1,250 @@
+package com.example.pubsubclient;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Measurements of one {@link PubSubClient}: per-endpoint request counters and
+ * latencies, handled batches, adaptive batch sizes and publisher calls.
+ * Recording is lock-free; asynchronous requests are timed from a completion
+ * stage added to each of them. The values are read through the accessors,
+ * over JMX after {@link #registerMBeans(String)}, or pushed to
+ * {@link MetricsListener}s.
+ */
+public final class ClientMetrics implements ClientMetricsMXBean {
+
+    private static final String DOMAIN = "com.example.pubsubclient";
+
+    private final EndpointMetrics[] endpoints = new EndpointMetrics[Endpoint.values().length];
+    private final Histogram eventsPerBatch = new Histogram();
+    private final Histogram handlerTime = new Histogram();
+    private final Histogram publishLatency = new Histogram();
+    private final LongAdder eventsPublished = new LongAdder();
+    private final Map<String, BatchSizeGauge> batchSizes = new ConcurrentHashMap<>();
+    private final AtomicLong batchSizeGauges = new AtomicLong();
+    private volatile MetricsListener[] listeners = new MetricsListener[0];
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    ClientMetrics() {
+        for (int i = 0; i < endpoints.length; i++) {
+            endpoints[i] = new EndpointMetrics();
+        }
+    }
+
+    public EndpointMetrics endpoint(Endpoint endpoint) {
+        return endpoints[endpoint.ordinal()];
+    }
+
+    /** Number of events in every handled batch. */
+    public Histogram eventsPerBatch() {
+        return eventsPerBatch;
+    }
+
+    /** Time in nanoseconds the handler took per batch. */
+    public Histogram handlerTime() {
+        return handlerTime;
+    }
+
+    /**
+     * Current batch sizes of the running consumers with {@link BatchSizing} on
+     * {@code subscription} of {@code org}'s {@code topic}, one per consumer.
+     */
+    public List<Integer> batchSizes(String org, String topic, String subscription) {
+        String path = path(org, topic, subscription);
+        List<Integer> sizes = new ArrayList<>();
+        for (BatchSizeGauge gauge : batchSizes.values()) {
+            if (gauge.path.equals(path)) {
+                sizes.add(gauge.size);
+            }
+        }
+        return sizes;
+    }
+
+    /** Time in nanoseconds every {@link EventPublisher} call took to complete. */
+    public Histogram publishLatency() {
+        return publishLatency;
+    }
+
+    public synchronized void addListener(MetricsListener listener) {
+        MetricsListener[] current = listeners;
+        MetricsListener[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = listener;
+        listeners = next;
+    }
+
+    public synchronized void removeListener(MetricsListener listener) {
+        listeners = Arrays.stream(listeners).filter(l -> l != listener).toArray(MetricsListener[]::new);
+    }
+
+    /**
+     * Registers this client's MBeans with the platform MBean server under
+     * {@code com.example.pubsubclient:type=PubSubClient,name=<name>}, one more
+     * per endpoint with an additional {@code endpoint} key.
+     */
+    public synchronized void registerMBeans(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String base = DOMAIN + ":type=PubSubClient,name=" + ObjectName.quote(name);
+        try {
+            register(server, new ObjectName(base), this);
+            for (Endpoint endpoint : Endpoint.values()) {
+                register(server, new ObjectName(base + ",endpoint=" + endpoint.name().toLowerCase(Locale.ROOT)),
+                        endpoint(endpoint));
+            }
+        } catch (JMException e) {
+            unregisterMBeans();
+            throw new IllegalStateException("Could not register metrics MBeans for " + name, e);
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // already gone
+            }
+        }
+        registered.clear();
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+        server.registerMBean(mbean, name);
+        registered.add(name);
+    }
+
+    void request(Endpoint endpoint, int statusCode, long latencyNanos, long bytesSent) {
+        endpoints[endpoint.ordinal()].request(statusCode, latencyNanos, bytesSent);
+        for (MetricsListener listener : listeners) {
+            listener.onRequest(endpoint, statusCode, latencyNanos, bytesSent);
+        }
+    }
+
+    void received(Endpoint endpoint, long bytes) {
+        endpoints[endpoint.ordinal()].received(bytes);
+        for (MetricsListener listener : listeners) {
+            listener.onBytesReceived(endpoint, bytes);
+        }
+    }
+
+    void batchHandled(int events, long handlerNanos) {
+        eventsPerBatch.record(events);
+        handlerTime.record(handlerNanos);
+        for (MetricsListener listener : listeners) {
+            listener.onBatchHandled(events, handlerNanos);
+        }
+    }
+
+    /**
+     * Starts tracking the batch size of one consumer with {@link BatchSizing},
+     * without notifying listeners; the consumer updates the returned gauge and
+     * closes it when it stops.
+     */
+    BatchSizeGauge batchSizeStarted(EventConsumerConfig<?> config, int batchSize) {
+        BatchSizeGauge gauge = new BatchSizeGauge(config, batchSizeGauges.incrementAndGet(), batchSize);
+        batchSizes.put(gauge.key, gauge);
+        return gauge;
+    }
+
+    private static String path(String org, String topic, String subscription) {
+        return org + "/" + topic + "/" + subscription;
+    }
+
+    void published(int events, long latencyNanos) {
+        eventsPublished.add(events);
+        publishLatency.record(latencyNanos);
+        for (MetricsListener listener : listeners) {
+            listener.onPublished(events, latencyNanos);
+        }
+    }
+
+    @Override
+    public long getBatchesHandled() {
+        return eventsPerBatch.count();
+    }
+
+    @Override
+    public long getEventsHandled() {
+        return eventsPerBatch.sum();
+    }
+
+    @Override
+    public double getEventsPerBatchMean() {
+        return eventsPerBatch.mean();
+    }
+
+    @Override
+    public double getHandlerMeanMillis() {
+        return EndpointMetrics.millis(handlerTime.mean());
+    }
+
+    @Override
+    public double getHandlerP99Millis() {
+        return EndpointMetrics.millis(handlerTime.percentile(0.99));
+    }
+
+    @Override
+    public Map<String, Integer> getBatchSizes() {
+        Map<String, Integer> sizes = new TreeMap<>();
+        batchSizes.forEach((key, gauge) -> sizes.put(key, gauge.size));
+        return sizes;
+    }
+
+    @Override
+    public long getPublishCalls() {
+        return publishLatency.count();
+    }
+
+    @Override
+    public long getEventsPublished() {
+        return eventsPublished.sum();
+    }
+
+    @Override
+    public double getPublishP50Millis() {
+        return EndpointMetrics.millis(publishLatency.percentile(0.5));
+    }
+
+    @Override
+    public double getPublishP99Millis() {
+        return EndpointMetrics.millis(publishLatency.percentile(0.99));
+    }
+
+    /** Batch size of one consumer, listed under {@code org/topic/subscription#id}. */
+    final class BatchSizeGauge {
+        private final String subscription;
+        private final String path;
+        private final String key;
+        private volatile int size;
+
+        private BatchSizeGauge(EventConsumerConfig<?> config, long id, int size) {
+            this.subscription = config.subscription();
+            this.path = path(config.org(), config.topic(), config.subscription());
+            this.key = path + "#" + id;
+            this.size = size;
+        }
+
+        void set(int batchSize) {
+            size = batchSize;
+            for (MetricsListener listener : listeners) {
+                listener.onBatchSizeChanged(subscription, batchSize);
+            }
+        }
+
+        void close() {
+            batchSizes.remove(key, this);
+        }
+    }
+}
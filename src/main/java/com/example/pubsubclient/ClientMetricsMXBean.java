@@ -0,0 +1,28 @@
+package com.example.pubsubclient;
+
+import java.util.Map;
+
+/** JMX view of the events a client consumed and published. */
+public interface ClientMetricsMXBean {
+
+    long getBatchesHandled();
+
+    long getEventsHandled();
+
+    double getEventsPerBatchMean();
+
+    double getHandlerMeanMillis();
+
+    double getHandlerP99Millis();
+
+    /** Current batch size per subscription of the running consumers with {@link BatchSizing}. */
+    Map<String, Integer> getBatchSizes();
+
+    long getPublishCalls();
+
+    long getEventsPublished();
+
+    double getPublishP50Millis();
+
+    double getPublishP99Millis();
+}
@@ -0,0 +1,59 @@
+package com.example.pubsubclient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.pubsubclient.model.EventResponse;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+/**
+ * Per-client state of an {@link EventCodec}: the {@code Accept} header it
+ * sends and its cached event readers.
+ */
+final class CodecContext {
+
+    private final EventCodec codec;
+    private final String accept;
+    private final Map<JavaType, ObjectReader> eventReaders = new ConcurrentHashMap<>();
+    private final ObjectReader untypedEventReader;
+
+    CodecContext(EventCodec codec) {
+        this.codec = codec;
+        this.accept = codec.contentType().equals(EventCodec.JSON.contentType())
+                ? codec.contentType()
+                : codec.contentType() + ", " + EventCodec.JSON.contentType() + ";q=0.5";
+        this.untypedEventReader = eventReader(TypeFactory.unknownType());
+    }
+
+    EventCodec codec() {
+        return codec;
+    }
+
+    ObjectMapper mapper() {
+        return codec.mapper();
+    }
+
+    String contentType() {
+        return codec.contentType();
+    }
+
+    /** Asks for the codec's own format and falls back to JSON. */
+    String accept() {
+        return accept;
+    }
+
+    /**
+     * Cached reader for a single event with the given payload type,
+     * {@code null} for payloads left as plain maps, lists and scalars.
+     */
+    ObjectReader eventReader(JavaType payloadType) {
+        if (payloadType == null) {
+            return untypedEventReader;
+        }
+        return eventReaders.computeIfAbsent(payloadType, type -> codec.mapper()
+                .readerFor(codec.mapper().getTypeFactory().constructParametricType(EventResponse.class, type)));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.pubsubclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers the ids committed on one subscription and sends them in a single
+ * commit request once the {@link CommitCoalescingConfig} size or time
+ * threshold is reached. Every id can be followed through the future of the
+ * request that carries it.
+ */
+class CommitCoalescer implements AutoCloseable {
+
+    private final PubSubClient client;
+    private final EventConsumerConfig<?> config;
+    private final CommitCoalescingConfig limits;
+    private final ConsumerErrorHandler errorHandler;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final Map<UUID, CompletableFuture<Integer>> completions = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<Integer>> inFlight = ConcurrentHashMap.newKeySet();
+    private final Object lock = new Object();
+
+    private List<UUID> pending = new ArrayList<>();
+    private CompletableFuture<Integer> pendingCommit = new CompletableFuture<>();
+    private ScheduledFuture<?> timer;
+    private boolean closed;
+
+    CommitCoalescer(PubSubClient client, EventConsumerConfig<?> config, ConsumerErrorHandler errorHandler) {
+        this(client, config, errorHandler,
+                Executors.newSingleThreadScheduledExecutor(Threads.daemon("pubsub-commit-flush")), true);
+    }
+
+    /** Coalescer whose flush timers run on {@code scheduler}, which it shuts down on close if it owns it. */
+    CommitCoalescer(PubSubClient client, EventConsumerConfig<?> config, ConsumerErrorHandler errorHandler,
+            ScheduledExecutorService scheduler, boolean ownsScheduler) {
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+        this.client = client;
+        this.config = config;
+        this.limits = config.commitCoalescing();
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Queues the ids for commit. The returned future completes with the result
+     * of the commit request that carries them.
+     *
+     * @throws IllegalStateException if the coalescer was closed
+     */
+    CompletableFuture<Integer> commit(List<UUID> ids) {
+        CompletableFuture<Integer> result;
+        List<UUID> ready = null;
+        CompletableFuture<Integer> readyCommit = null;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Commits are not accepted after close");
+            }
+            result = pendingCommit;
+            for (UUID id : ids) {
+                pending.add(id);
+                completions.put(id, pendingCommit);
+            }
+            if (pending.size() >= limits.maxIds()) {
+                readyCommit = pendingCommit;
+                ready = drain();
+            } else if (timer == null && !pending.isEmpty()) {
+                timer = scheduler.schedule(this::flush, limits.maxDelayMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            send(ready, readyCommit);
+        }
+        return result;
+    }
+
+    /**
+     * Future of the commit request carrying {@code id}. Ids that are not
+     * waiting for a commit get an already completed future.
+     */
+    CompletableFuture<Integer> completion(UUID id) {
+        return completions.getOrDefault(id, CompletableFuture.completedFuture(0));
+    }
+
+    /** Sends every pending id now. */
+    CompletableFuture<Integer> flush() {
+        List<UUID> ready;
+        CompletableFuture<Integer> readyCommit;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
+            }
+            readyCommit = pendingCommit;
+            ready = drain();
+        }
+        send(ready, readyCommit);
+        return readyCommit;
+    }
+
+    /** Flushes and waits for every outstanding commit request; later commits are rejected. */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        for (CompletableFuture<Integer> commit : inFlight) {
+            // failures were already reported to the error handler
+            commit.exceptionally(error -> 0).join();
+        }
+        if (ownsScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    private List<UUID> drain() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        List<UUID> drained = pending;
+        pending = new ArrayList<>();
+        inFlight.add(pendingCommit);
+        pendingCommit = new CompletableFuture<>();
+        return drained;
+    }
+
+    private void send(List<UUID> ids, CompletableFuture<Integer> commit) {
+        client.commitEventsAsync(config.org(), config.topic(), config.subscription(), ids, config.codec())
+                .whenComplete((committed, error) -> {
+                    for (UUID id : ids) {
+                        completions.remove(id, commit);
+                    }
+                    inFlight.remove(commit);
+                    if (error != null) {
+                        Exception e = Futures.unwrap(error);
+                        errorHandler.onError(e);
+                        commit.completeExceptionally(e);
+                    } else {
+                        commit.complete(committed);
+                    }
+                });
+    }
+}
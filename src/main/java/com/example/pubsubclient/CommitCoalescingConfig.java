@@ -0,0 +1,20 @@
+package com.example.pubsubclient;
+
+/**
+ * Thresholds for coalescing commits in {@link EventConsumer}. Committed ids are
+ * sent in one request once {@code maxIds} are pending or the oldest one has
+ * waited {@code maxDelayMillis}.
+ *
+ * @param maxIds         number of pending ids that triggers a commit request
+ * @param maxDelayMillis maximum time an id waits before it is committed
+ */
+public record CommitCoalescingConfig(
+        int maxIds,
+        long maxDelayMillis
+) {
+    public CommitCoalescingConfig {
+        if (maxIds <= 0 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Commit coalescing limits must be positive");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.pubsubclient;
+
+/**
+ * Compression for {@link PubSubClient}. Request bodies of at least
+ * {@code minBytes} are compressed with {@code coding}, and the client asks the
+ * service for compressed responses with every coding it knows.
+ *
+ * @param coding   coding used for request bodies
+ * @param minBytes smallest body that is worth compressing
+ */
+public record CompressionConfig(
+        ContentCoding coding,
+        int minBytes
+) {
+    public CompressionConfig {
+        if (coding == null || minBytes < 0) {
+            throw new IllegalArgumentException("Invalid compression config");
+        }
+    }
+}
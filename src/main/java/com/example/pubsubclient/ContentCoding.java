@@ -0,0 +1,59 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP content coding used to compress request bodies and to decompress
+ * responses. Besides {@link #GZIP} and {@link #DEFLATE}, further codings such
+ * as zstd can be plugged in by passing them to {@link CompressionConfig} or by
+ * registering them with {@link java.util.ServiceLoader}.
+ */
+public interface ContentCoding {
+
+    ContentCoding GZIP = new ContentCoding() {
+        @Override
+        public String name() {
+            return "gzip";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, 8 * 1024);
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) throws IOException {
+            return new GZIPInputStream(in, 8 * 1024);
+        }
+    };
+
+    ContentCoding DEFLATE = new ContentCoding() {
+        @Override
+        public String name() {
+            return "deflate";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) {
+            return new DeflaterOutputStream(out);
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            return new InflaterInputStream(in);
+        }
+    };
+
+    /** Token used in the {@code Content-Encoding} and {@code Accept-Encoding} headers. */
+    String name();
+
+    OutputStream compress(OutputStream out) throws IOException;
+
+    InputStream decompress(InputStream in) throws IOException;
+}
@@ -0,0 +1,28 @@
+package com.example.pubsubclient;
+
+/**
+ * Limits of the ids a {@link DeduplicatingEventsHandler} remembers. Ids are
+ * forgotten once {@code maxIds} newer ones were recorded or after
+ * {@code ttlMillis}, whichever comes first. Every id takes 32 to 40 bytes,
+ * allocated up front, so the cache never grows past its initial footprint;
+ * {@code offHeap} keeps it outside the Java heap.
+ *
+ * @param maxIds    ids remembered at most, up to 2^26
+ * @param ttlMillis time an id is remembered for
+ * @param offHeap   whether the cache lives in direct memory
+ */
+public record DedupConfig(
+        int maxIds,
+        long ttlMillis,
+        boolean offHeap
+) {
+    public DedupConfig {
+        if (maxIds <= 0 || maxIds > 1 << 26 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Invalid dedup config");
+        }
+    }
+
+    public DedupConfig(int maxIds, long ttlMillis) {
+        this(maxIds, ttlMillis, false);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.pubsubclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.example.pubsubclient.model.EventResponse;
+
+/**
+ * {@link TypedEventsHandler} that drops redelivered events before they reach
+ * the wrapped handler. An id counts as handled once it was passed to the
+ * commit function or the wrapped handler returned normally for its batch, so
+ * events of a batch that failed are handed over again. Dropped events are
+ * committed right away, as their earlier commit evidently got lost. The ids
+ * are kept in a bounded cache, see {@link DedupConfig}.
+ */
+public class DeduplicatingEventsHandler<T> implements TypedEventsHandler<T> {
+
+    private final TypedEventsHandler<T> delegate;
+    private final UuidCache seen;
+    private final LongAdder duplicates = new LongAdder();
+
+    public DeduplicatingEventsHandler(TypedEventsHandler<T> delegate, DedupConfig config) {
+        this.delegate = delegate;
+        this.seen = new UuidCache(config);
+    }
+
+    @Override
+    public void handle(List<EventResponse<T>> events, Function<List<UUID>, Integer> commitFn) throws Exception {
+        long now = now();
+        List<EventResponse<T>> fresh = new ArrayList<>(events.size());
+        List<UUID> redelivered = null;
+        for (EventResponse<T> event : events) {
+            if (seen.contains(event.id(), now)) {
+                if (redelivered == null) {
+                    redelivered = new ArrayList<>();
+                }
+                redelivered.add(event.id());
+            } else {
+                fresh.add(event);
+            }
+        }
+        if (redelivered != null) {
+            duplicates.add(redelivered.size());
+            commitFn.apply(redelivered);
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+        delegate.handle(fresh, ids -> {
+            // the work is done even if the commit fails, which is what makes a redelivery likely
+            record(ids);
+            return commitFn.apply(ids);
+        });
+        long handled = now();
+        for (EventResponse<T> event : fresh) {
+            seen.add(event.id(), handled);
+        }
+    }
+
+    /** Number of redelivered events dropped so far. */
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    /** Number of ids currently remembered. */
+    public int size() {
+        return seen.size();
+    }
+
+    private void record(List<UUID> ids) {
+        long now = now();
+        for (UUID id : ids) {
+            seen.add(id, now);
+        }
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.pubsubclient;
+
+/** Service endpoints the client calls, as reported by {@link ClientMetrics}. */
+public enum Endpoint {
+    PUBLISH,
+    READ,
+    COMMIT
+}
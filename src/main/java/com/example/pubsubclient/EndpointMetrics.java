@@ -0,0 +1,124 @@
+package com.example.pubsubclient;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counters and latency histogram of the requests to one {@link Endpoint}. */
+public final class EndpointMetrics implements EndpointMetricsMXBean {
+
+    private static final int MAX_STATUS = 599;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS + 1);
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final Histogram latency = new Histogram();
+
+    void request(int statusCode, long latencyNanos, long sent) {
+        requests.increment();
+        if (statusCode == 0 || statusCode >= 400) {
+            failures.increment();
+        }
+        statusCounts.incrementAndGet(statusCode < 0 || statusCode > MAX_STATUS ? 0 : statusCode);
+        bytesSent.add(sent);
+        latency.record(latencyNanos);
+    }
+
+    void received(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    void retried() {
+        retries.increment();
+    }
+
+    void shortCircuited() {
+        shortCircuited.increment();
+    }
+
+    /** Latency of the requests in nanoseconds, until the response headers arrived. */
+    public Histogram latency() {
+        return latency;
+    }
+
+    public long statusCount(int statusCode) {
+        return statusCode < 0 || statusCode > MAX_STATUS ? 0 : statusCounts.get(statusCode);
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (int status = 0; status <= MAX_STATUS; status++) {
+            long count = statusCounts.get(status);
+            if (count > 0) {
+                counts.put(status, count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getShortCircuited() {
+        return shortCircuited.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return millis(latency.mean());
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return millis(latency.percentile(0.5));
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return millis(latency.percentile(0.99));
+    }
+
+    @Override
+    public double getLatencyP999Millis() {
+        return millis(latency.percentile(0.999));
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return millis(latency.max());
+    }
+
+    static double millis(double nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
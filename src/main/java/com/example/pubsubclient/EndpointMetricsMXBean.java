@@ -0,0 +1,35 @@
+package com.example.pubsubclient;
+
+import java.util.Map;
+
+/** JMX view of the requests to one {@link Endpoint}. */
+public interface EndpointMetricsMXBean {
+
+    long getRequests();
+
+    /** Requests that got no response or a status of 400 and above. */
+    long getFailures();
+
+    /** Number of responses per status code, 0 standing for no response. */
+    Map<Integer, Long> getStatusCounts();
+
+    /** Attempts made after a failed one, each also counted as a request. */
+    long getRetries();
+
+    /** Requests refused because the circuit breaker was open. */
+    long getShortCircuited();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyP999Millis();
+
+    double getLatencyMaxMillis();
+}
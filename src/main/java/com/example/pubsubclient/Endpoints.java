@@ -0,0 +1,51 @@
+package com.example.pubsubclient;
+
+import java.net.URI;
+
+/**
+ * Request URIs of one organization, topic and subscription, built once so
+ * requests skip formatting and parsing them. Read URIs carry the batch size,
+ * the last one used is kept.
+ */
+final class Endpoints {
+
+    private final URI publish;
+    private final URI commit;
+    private final String readPrefix;
+    private volatile ReadUri read;
+
+    Endpoints(String baseUrl, String org, String topic, String subscription) {
+        String topicUrl = baseUrl + "/" + org + "/topics/" + topic;
+        this.publish = URI.create(topicUrl + "/events");
+        if (subscription == null) {
+            this.commit = null;
+            this.readPrefix = null;
+        } else {
+            String subscriptionUrl = topicUrl + "/subscriptions/" + subscription;
+            this.commit = URI.create(subscriptionUrl + "/event-commits");
+            this.readPrefix = subscriptionUrl + "/events?batchSize=";
+        }
+    }
+
+    URI publish() {
+        return publish;
+    }
+
+    URI commit() {
+        return commit;
+    }
+
+    URI read(int batchSize) {
+        ReadUri current = read;
+        if (current == null || current.batchSize() != batchSize) {
+            current = new ReadUri(batchSize, URI.create(readPrefix + batchSize));
+            read = current;
+        }
+        return current.uri();
+    }
+
+    private record ReadUri(int batchSize, URI uri) {}
+
+    /** Cache key; publishes use a {@code null} subscription. */
+    record Key(String org, String topic, String subscription) {}
+}
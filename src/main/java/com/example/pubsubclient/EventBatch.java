@@ -0,0 +1,20 @@
+package com.example.pubsubclient;
+
+import java.util.List;
+
+import com.example.pubsubclient.model.EventResponse;
+
+/**
+ * Events returned by a single read together with the size of the response
+ * body they were decoded from.
+ */
+record EventBatch<T>(List<EventResponse<T>> events, long bytes) {
+
+    static <T> EventBatch<T> empty() {
+        return new EventBatch<>(List.of(), 0);
+    }
+
+    int size() {
+        return events.size();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.pubsubclient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Wire format of event payloads, selected per {@link EventPublisherConfig} and
+ * {@link EventConsumerConfig}. Requests carry the codec's content type, and
+ * responses are decoded with the requested codec, or with the built-in codec
+ * matching the content type when the service answered in another format.
+ */
+public interface EventCodec {
+
+    EventCodec JSON = of("application/json", new ObjectMapper());
+
+    EventCodec SMILE = of("application/x-jackson-smile", new SmileMapper());
+
+    EventCodec CBOR = of("application/cbor", new CBORMapper());
+
+    /** Media type used in the {@code Content-Type} and {@code Accept} headers. */
+    String contentType();
+
+    ObjectMapper mapper();
+
+    /**
+     * Codec backed by any Jackson mapper. The Java time module that event
+     * timestamps need is registered on a {@link ObjectMapper#copy() copy} of
+     * the mapper, so {@code mapper} itself is left as it is.
+     */
+    static EventCodec of(String contentType, ObjectMapper mapper) {
+        return new MapperCodec(contentType, mapper.copy().registerModule(new JavaTimeModule()));
+    }
+}
@@ -1,74 +1,308 @@
 package com.example.pubsubclient;
 
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.example.pubsubclient.exception.EventConflictException;
 
 /**
  * Polls the PubSub service at a fixed interval and delegates events to the
  * provided {@link EventsHandler}. Users can start and stop the polling as
- * needed.
+ * needed. When the config carries a {@link PollingBackoff} the interval adapts
+ * to the amount of events received instead, and with a {@link PrefetchConfig}
+ * the next batches are read on a separate thread while the handler runs. A
+ * {@link CommitCoalescingConfig} turns commits into non-blocking calls that
+ * are sent together and flushed when the consumer stops. With
+ * {@link ThreadMode#VIRTUAL} these loops run on virtual threads, and with
+ * {@link BatchSizing} every read asks for a batch size tuned to the handler
+ * time and response size of the previous ones.
+ *
+ * @param <T> payload type of the config's {@link EventConsumerConfig#withPayloadType(Class)}
  */
-public class EventConsumer implements AutoCloseable {
-    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-    private final EventConsumerConfig config;
-    private final EventsHandler eventsHandler;
+public class EventConsumer<T> implements AutoCloseable {
+    private final ScheduledExecutorService executor;
+    private final EventConsumerConfig<T> config;
+    private final TypedEventsHandler<T> eventsHandler;
     private final ConsumerErrorHandler errorHandler;
     private final PubSubClient client;
+    private final PrefetchBuffer<T> prefetchBuffer;
+    private final ExecutorService handlerExecutor;
+    private final CommitCoalescer commitCoalescer;
+    private final Function<List<UUID>, Integer> commitFn;
+    private final PollDelay pollDelay;
+    private final BatchSizeController batchSizer;
 
-    private ScheduledFuture<?> future;
+    private Future<?> future;
+    private Future<?> handlerFuture;
+    private long generation;
 
     public EventConsumer(
             PubSubClient client,
-            EventsHandler eventsHandler,
-            EventConsumerConfig config) {
+            TypedEventsHandler<T> eventsHandler,
+            EventConsumerConfig<T> config) {
         this(client, eventsHandler, config, (error) -> {
         });
     }
 
+    /**
+     * The handler receives payloads of the config's payload type, so a
+     * {@link TypedEventsHandler} is paired with a config from the matching
+     * {@link EventConsumerConfig#withPayloadType(Class)}.
+     */
     public EventConsumer(
             PubSubClient client,
-            EventsHandler eventsHandler,
-            EventConsumerConfig config,
+            TypedEventsHandler<T> eventsHandler,
+            EventConsumerConfig<T> config,
             ConsumerErrorHandler errorHandler) {
         this.config = config;
         this.client = client;
         this.eventsHandler = eventsHandler;
         this.errorHandler = errorHandler;
+        this.pollDelay = new PollDelay(config);
+        this.batchSizer = config.batchSizing() == null ? null : new BatchSizeController(config, client.metrics());
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                Threads.factory(config.threadMode(), "pubsub-consumer-" + config.subscription()));
+        if (config.prefetch() == null) {
+            this.prefetchBuffer = null;
+            this.handlerExecutor = null;
+        } else {
+            this.prefetchBuffer = new PrefetchBuffer<>(config.prefetch());
+            this.handlerExecutor = Executors.newSingleThreadExecutor(
+                    Threads.factory(config.threadMode(), "pubsub-handler-" + config.subscription()));
+        }
+        if (config.commitCoalescing() == null) {
+            this.commitCoalescer = null;
+            this.commitFn = client.commitFunction(config.org(), config.topic(), config.subscription(),
+                    config.codec());
+        } else {
+            this.commitCoalescer = new CommitCoalescer(client, config, errorHandler);
+            this.commitFn = ids -> {
+                commitCoalescer.commit(ids);
+                return ids.size();
+            };
+        }
     }
 
     /** Start polling if not already running. */
-    public void start() {
+    public synchronized void start() {
         if (future != null && !future.isCancelled()) {
             return;
         }
-        future = executor.scheduleAtFixedRate(() -> {
-            try {
-                this.client.consumeEvents(
-                        config.org(),
-                        config.topic(),
-                        config.subscription(),
-                        config.batchSize(),
-                        eventsHandler);
-            } catch (Exception e) {
-                errorHandler.onError(e);
-                e.printStackTrace();
-            }
-        }, 0, config.intervalMillis(), TimeUnit.MILLISECONDS);
+        long current = ++generation;
+        pollDelay.reset();
+        if (prefetchBuffer != null) {
+            prefetchBuffer.clear();
+            future = executor.submit(this::fetchLoop);
+            handlerFuture = handlerExecutor.submit(this::handleLoop);
+        } else if (config.backoff() == null) {
+            future = executor.scheduleAtFixedRate(this::poll, 0, config.intervalMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            future = executor.schedule(() -> pollAdaptively(current), 0, TimeUnit.MILLISECONDS);
+        }
     }
 
-    /** Stop polling. */
-    public void stop() {
+    /**
+     * Stop polling. Prefetched events that were not handled yet are dropped
+     * and coalesced commits are flushed.
+     */
+    public synchronized void stop() {
         if (future != null) {
-            future.cancel(false);
+            future.cancel(prefetchBuffer != null);
             future = null;
         }
+        if (handlerFuture != null) {
+            handlerFuture.cancel(true);
+            handlerFuture = null;
+        }
+        if (commitCoalescer != null) {
+            commitCoalescer.flush();
+        }
     }
 
     @Override
     public void close() {
         stop();
         executor.shutdownNow();
+        if (handlerExecutor != null) {
+            handlerExecutor.shutdownNow();
+        }
+        if (commitCoalescer != null) {
+            // a poll still running may commit once more before the final flush
+            awaitTermination(executor);
+            if (handlerExecutor != null) {
+                awaitTermination(handlerExecutor);
+            }
+            commitCoalescer.close();
+        }
+        if (batchSizer != null) {
+            batchSizer.close();
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Future of the commit request carrying {@code eventId} when commits are
+     * coalesced. Ids that are not waiting for a commit get a completed future.
+     */
+    public CompletableFuture<Integer> commitCompletion(UUID eventId) {
+        if (commitCoalescer == null) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return commitCoalescer.completion(eventId);
+    }
+
+    /** Batch size of the next read, as adapted by the config's {@link BatchSizing} if it has one. */
+    public int batchSize() {
+        return batchSizer == null ? config.batchSize() : batchSizer.size();
+    }
+
+    private int poll() {
+        return poll(client, config, batchSizer, eventsHandler, commitFn, errorHandler);
+    }
+
+    /** Reads one batch, or streams it, and hands it to {@code handler}; errors are reported, not thrown. */
+    static <T> int poll(PubSubClient client, EventConsumerConfig<T> config, TypedEventsHandler<T> handler,
+            Function<List<UUID>, Integer> commitFn, ConsumerErrorHandler errorHandler) {
+        return poll(client, config, null, handler, commitFn, errorHandler);
+    }
+
+    private static <T> int poll(PubSubClient client, EventConsumerConfig<T> config,
+            BatchSizeController batchSizer, TypedEventsHandler<T> handler, Function<List<UUID>, Integer> commitFn,
+            ConsumerErrorHandler errorHandler) {
+        int batchSize = batchSizer == null ? config.batchSize() : batchSizer.size();
+        boolean reading = true;
+        try {
+            if (config.streaming()) {
+                // reads and handling interleave, so the whole poll counts as handling, failures included
+                reading = false;
+                long start = System.nanoTime();
+                int handled = client.streamEvents(
+                        config.org(),
+                        config.topic(),
+                        config.subscription(),
+                        batchSize,
+                        config.payloadType(),
+                        config.codec(),
+                        handler,
+                        commitFn);
+                if (batchSizer != null) {
+                    batchSizer.onRead(batchSize, handled, 0);
+                    batchSizer.onHandled(handled, System.nanoTime() - start);
+                }
+                return handled;
+            }
+            EventBatch<T> batch = client.readBatch(
+                    config.org(),
+                    config.topic(),
+                    config.subscription(),
+                    batchSize,
+                    config.payloadType(),
+                    config.codec());
+            reading = false;
+            if (batchSizer == null) {
+                return client.handleEvents(batch.events(), handler, commitFn);
+            }
+            batchSizer.onRead(batchSize, batch.size(), batch.bytes());
+            long start = System.nanoTime();
+            int handled = client.handleEvents(batch.events(), handler, commitFn);
+            batchSizer.onHandled(handled, System.nanoTime() - start);
+            return handled;
+        } catch (Exception e) {
+            if (batchSizer != null && (!reading || e instanceof EventConflictException)) {
+                batchSizer.onFailure();
+            }
+            errorHandler.onError(e);
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    private void pollAdaptively(long pollGeneration) {
+        int requested = batchSize();
+        long delay = pollDelay.next(poll(), requested);
+        synchronized (this) {
+            if (future != null && generation == pollGeneration && !executor.isShutdown()) {
+                future = executor.schedule(() -> pollAdaptively(pollGeneration), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void fetchLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                int batchSize = batchSize();
+                prefetchBuffer.awaitCapacity(batchSize);
+                int received = 0;
+                try {
+                    EventBatch<T> batch = client.readBatch(
+                            config.org(),
+                            config.topic(),
+                            config.subscription(),
+                            batchSize,
+                            config.payloadType(),
+                            config.codec());
+                    received = batch.size();
+                    if (batchSizer != null) {
+                        batchSizer.onRead(batchSize, received, batch.bytes());
+                    }
+                    if (received > 0) {
+                        prefetchBuffer.put(batch);
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    if (batchSizer != null && e instanceof EventConflictException) {
+                        batchSizer.onFailure();
+                    }
+                    errorHandler.onError(e);
+                    e.printStackTrace();
+                }
+                long delay = pollDelay.next(received, batchSize);
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                EventBatch<T> batch = prefetchBuffer.take();
+                long start = System.nanoTime();
+                try {
+                    int handled = client.handleEvents(batch.events(), eventsHandler, commitFn);
+                    if (batchSizer != null) {
+                        batchSizer.onHandled(handled, System.nanoTime() - start);
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    if (batchSizer != null) {
+                        batchSizer.onFailure();
+                    }
+                    errorHandler.onError(e);
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
@@ -1,14 +1,133 @@
 package com.example.pubsubclient;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
 /**
  * Configuration for {@link EventConsumer}. Encapsulates all parameters
- * required to start periodic event polling.
+ * required to start periodic event polling. Start from
+ * {@link #of(String, String, String, int, long)} and set a payload type with
+ * {@link #withPayloadType(Class)}, so the type parameter always matches the
+ * type payloads are decoded into. Like {@link #withPayloadType(JavaType)}, the
+ * canonical constructor trusts that {@code payloadType} describes {@code T}.
+ *
+ * @param <T> type the event payloads are decoded into, {@code Object} for plain
+ *            maps, lists and scalars
  */
-public record EventConsumerConfig(
+public record EventConsumerConfig<T>(
         String org,
         String topic,
         String subscription,
         int batchSize,
         long intervalMillis,
-        EventsHandler handler
-) {}
+        PollingBackoff backoff,
+        PrefetchConfig prefetch,
+        CommitCoalescingConfig commitCoalescing,
+        JavaType payloadType,
+        boolean streaming,
+        EventCodec codec,
+        ThreadMode threadMode,
+        BatchSizing batchSizing
+) {
+    private static final JavaType UNTYPED = TypeFactory.defaultInstance().constructType(Object.class);
+
+    public EventConsumerConfig {
+        if (payloadType == null) {
+            throw new IllegalArgumentException("Payload type is required");
+        }
+        if (codec == null) {
+            codec = EventCodec.JSON;
+        }
+        if (threadMode == null) {
+            threadMode = ThreadMode.PLATFORM;
+        }
+    }
+
+    /** Config whose payloads are decoded into plain maps, lists and scalars. */
+    public static EventConsumerConfig<Object> of(
+            String org,
+            String topic,
+            String subscription,
+            int batchSize,
+            long intervalMillis) {
+        return new EventConsumerConfig<>(org, topic, subscription, batchSize, intervalMillis, null, null, null,
+                UNTYPED, false, null, null, null);
+    }
+
+    /** Enables adaptive polling, {@code null} polls at a fixed rate. */
+    public EventConsumerConfig<T> withBackoff(PollingBackoff backoff) {
+        return new EventConsumerConfig<>(org, topic, subscription, batchSize, intervalMillis, backoff, prefetch,
+                commitCoalescing, payloadType, streaming, codec, threadMode, batchSizing);
+    }
+
+    /** Reads ahead while the handler runs, {@code null} reads and handles in turn. */
+    public EventConsumerConfig<T> withPrefetch(PrefetchConfig prefetch) {
+        return new EventConsumerConfig<>(org, topic, subscription, batchSize, intervalMillis, backoff, prefetch,
+                commitCoalescing, payloadType, streaming, codec, threadMode, batchSizing);
+    }
+
+    /** Coalesces commits into fewer requests, {@code null} commits every call right away. */
+    public EventConsumerConfig<T> withCommitCoalescing(CommitCoalescingConfig commitCoalescing) {
+        return new EventConsumerConfig<>(org, topic, subscription, batchSize, intervalMillis, backoff, prefetch,
+                commitCoalescing, payloadType, streaming, codec, threadMode, batchSizing);
+    }
+
+    /**
+     * Decodes payloads straight into {@code payloadType} for a
+     * {@link TypedEventsHandler} of the same type; {@code Object.class} leaves
+     * them as plain maps, lists and scalars.
+     */
+    public <U> EventConsumerConfig<U> withPayloadType(Class<U> payloadType) {
+        if (payloadType == null) {
+            throw new IllegalArgumentException("Payload type is required");
+        }
+        return withPayloadType(TypeFactory.defaultInstance().constructType(payloadType));
+    }
+
+    /**
+     * Like {@link #withPayloadType(Class)} for generic payload types; the
+     * caller vouches that {@code payloadType} describes {@code U}.
+     */
+    public <U> EventConsumerConfig<U> withPayloadType(JavaType payloadType) {
+        return new EventConsumerConfig<>(org, topic, subscription, batchSize, intervalMillis, backoff, prefetch,
+                commitCoalescing, payloadType, streaming, codec, threadMode, batchSizing);
+    }
+
+    /**
+     * Hands every event to the handler on its own as soon as it is decoded,
+     * so a poll holds one event in memory instead of the whole batch. Does not
+     * apply together with {@link #withPrefetch(PrefetchConfig) prefetching}.
+     */
+    public EventConsumerConfig<T> withStreaming(boolean streaming) {
+        return new EventConsumerConfig<>(org, topic, subscription, batchSize, intervalMillis, backoff, prefetch,
+                commitCoalescing, payloadType, streaming, codec, threadMode, batchSizing);
+    }
+
+    /**
+     * Asks the service for event batches in {@code codec}'s format and encodes
+     * commits with it, {@code null} uses JSON.
+     */
+    public EventConsumerConfig<T> withCodec(EventCodec codec) {
+        return new EventConsumerConfig<>(org, topic, subscription, batchSize, intervalMillis, backoff, prefetch,
+                commitCoalescing, payloadType, streaming, codec, threadMode, batchSizing);
+    }
+
+    /**
+     * Runs the polling loop and, with prefetching, the handler on
+     * {@code threadMode} threads, {@code null} uses platform threads.
+     */
+    public EventConsumerConfig<T> withThreadMode(ThreadMode threadMode) {
+        return new EventConsumerConfig<>(org, topic, subscription, batchSize, intervalMillis, backoff, prefetch,
+                commitCoalescing, payloadType, streaming, codec, threadMode, batchSizing);
+    }
+
+    /**
+     * Adapts the batch size of every read between the limits of
+     * {@code batchSizing}, starting from {@link #batchSize()}; {@code null}
+     * always reads {@link #batchSize()} events.
+     */
+    public EventConsumerConfig<T> withBatchSizing(BatchSizing batchSizing) {
+        return new EventConsumerConfig<>(org, topic, subscription, batchSize, intervalMillis, backoff, prefetch,
+                commitCoalescing, payloadType, streaming, codec, threadMode, batchSizing);
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.pubsubclient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+/**
+ * Consumes many subscriptions with a fixed number of threads: one scheduler
+ * thread that wakes idle subscriptions once their poll delay has passed and
+ * a pool of workers that poll the subscriptions that are due. Thread count
+ * and per-subscription memory therefore stay flat however many
+ * subscriptions are registered, unlike one {@link EventConsumer} each.
+ *
+ * <p>Due subscriptions are served by deficit round-robin. Every turn a
+ * subscription is credited {@code quantum * weight} events and polled only
+ * while its credit is positive; the events it then receives are charged
+ * against it. A subscription that keeps returning full batches therefore goes
+ * to the back of the line after every poll and, when its batches are larger
+ * than its share, sits out turns until the others caught up. A subscription
+ * is never polled by two workers at once.
+ *
+ * <p>Subscriptions are polled again right away after a full batch, after the
+ * config's interval after a partial one and according to its
+ * {@link PollingBackoff} while empty. Streaming and coalesced commits are
+ * supported; prefetching needs a thread of its own and is rejected, as is
+ * {@link BatchSizing}, since the quanta are counted in events.
+ */
+public class EventConsumerGroup implements AutoCloseable {
+
+    private static final AtomicInteger GROUPS = new AtomicInteger();
+
+    private final PubSubClient client;
+    private final ConsumerErrorHandler errorHandler;
+    private final int quantum;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    private final ArrayDeque<Member> ready = new ArrayDeque<>();
+    private final List<Member> members = new ArrayList<>();
+    private final Object lock = new Object();
+    private boolean closed;
+
+    public EventConsumerGroup(PubSubClient client, int workers) {
+        this(client, workers, 100, error -> {
+        });
+    }
+
+    /**
+     * Group polling with {@code workers} threads that credits every
+     * subscription {@code quantum} events per turn and weight.
+     */
+    public EventConsumerGroup(PubSubClient client, int workers, int quantum, ConsumerErrorHandler errorHandler) {
+        if (workers <= 0 || quantum <= 0) {
+            throw new IllegalArgumentException("Workers and quantum must be positive");
+        }
+        this.client = client;
+        this.errorHandler = errorHandler;
+        this.quantum = quantum;
+        int group = GROUPS.incrementAndGet();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Threads.daemon("pubsub-group-" + group + "-scheduler"));
+        this.workers = Executors.newFixedThreadPool(workers, Threads.daemon("pubsub-group-" + group + "-worker"));
+        for (int i = 0; i < workers; i++) {
+            this.workers.execute(this::workLoop);
+        }
+    }
+
+    /** Starts consuming the subscription of {@code config} with weight 1. */
+    public <T> Member register(TypedEventsHandler<T> handler, EventConsumerConfig<T> config) {
+        return register(handler, config, 1);
+    }
+
+    /**
+     * Starts consuming the subscription of {@code config}. A subscription of
+     * weight 2 gets twice the events per turn of one of weight 1 while both
+     * have events waiting.
+     */
+    public <T> Member register(TypedEventsHandler<T> handler, EventConsumerConfig<T> config, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive");
+        }
+        if (config.prefetch() != null) {
+            throw new IllegalArgumentException("Prefetching is not supported in a consumer group");
+        }
+        if (config.batchSizing() != null) {
+            throw new IllegalArgumentException("Batch sizing is not supported in a consumer group");
+        }
+        Member member = new Member(handler, config, (long) quantum * weight);
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Consumer group is closed");
+            }
+            members.add(member);
+            makeReady(member);
+        }
+        return member;
+    }
+
+    /** Number of registered subscriptions. */
+    public int size() {
+        synchronized (lock) {
+            return members.size();
+        }
+    }
+
+    /**
+     * Stops polling, waits for the polls in progress and flushes coalesced
+     * commits.
+     */
+    @Override
+    public void close() {
+        List<Member> removed;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            removed = new ArrayList<>(members);
+            for (Member member : removed) {
+                member.cancel();
+            }
+            members.clear();
+            ready.clear();
+            lock.notifyAll();
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for (Member member : removed) {
+            member.closeCoalescer();
+        }
+        scheduler.shutdownNow();
+    }
+
+    private void workLoop() {
+        try {
+            Member member;
+            while ((member = next()) != null) {
+                int received = member.poll();
+                polled(member, received);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Next subscription to poll by deficit round-robin, {@code null} once the group is closed. */
+    private Member next() throws InterruptedException {
+        synchronized (lock) {
+            while (true) {
+                while (ready.isEmpty()) {
+                    if (closed) {
+                        return null;
+                    }
+                    lock.wait();
+                }
+                Member member = ready.pollFirst();
+                member.deficit += member.quantum;
+                if (member.deficit > 0) {
+                    member.polling = true;
+                    return member;
+                }
+                ready.addLast(member);
+            }
+        }
+    }
+
+    private void polled(Member member, int received) {
+        boolean removed;
+        synchronized (lock) {
+            member.polling = false;
+            member.polls++;
+            member.received += received;
+            // unspent credit carries over to the next turn, but never more than one quantum
+            member.deficit = Math.min(member.deficit - Math.max(1, received), member.quantum);
+            removed = !member.active;
+            if (!removed) {
+                long delay = member.pollDelay.next(received);
+                if (delay == 0) {
+                    makeReady(member);
+                } else {
+                    // an idle subscription gets no credit for the time it was idle
+                    member.deficit = Math.min(member.deficit, 0);
+                    member.timer = scheduler.schedule(() -> wake(member), delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        if (removed) {
+            member.closeCoalescer();
+        }
+    }
+
+    private void wake(Member member) {
+        synchronized (lock) {
+            member.timer = null;
+            if (member.active) {
+                makeReady(member);
+            }
+        }
+    }
+
+    private void makeReady(Member member) {
+        ready.addLast(member);
+        lock.notify();
+    }
+
+    /** A subscription consumed by the group. State is guarded by the group's lock. */
+    public final class Member {
+        private final EventConsumerConfig<?> config;
+        private final long quantum;
+        private final PollDelay pollDelay;
+        private final CommitCoalescer commitCoalescer;
+        private final Function<List<UUID>, Integer> commitFn;
+        private final IntSupplier poller;
+
+        private boolean active = true;
+        private boolean polling;
+        private long deficit;
+        private long polls;
+        private long received;
+        private ScheduledFuture<?> timer;
+
+        private <T> Member(TypedEventsHandler<T> handler, EventConsumerConfig<T> config, long quantum) {
+            this.config = config;
+            this.quantum = quantum;
+            this.pollDelay = new PollDelay(config);
+            if (config.commitCoalescing() == null) {
+                this.commitCoalescer = null;
+                this.commitFn = client.commitFunction(config.org(), config.topic(), config.subscription(),
+                        config.codec());
+            } else {
+                this.commitCoalescer = new CommitCoalescer(client, config, errorHandler, scheduler, false);
+                this.commitFn = ids -> {
+                    commitCoalescer.commit(ids);
+                    return ids.size();
+                };
+            }
+            this.poller = () -> EventConsumer.poll(client, config, handler, commitFn, errorHandler);
+        }
+
+        public EventConsumerConfig<?> config() {
+            return config;
+        }
+
+        /** Number of polls made so far. */
+        public long polls() {
+            synchronized (lock) {
+                return polls;
+            }
+        }
+
+        /** Number of events received so far. */
+        public long received() {
+            synchronized (lock) {
+                return received;
+            }
+        }
+
+        /**
+         * Stops consuming this subscription. A poll in progress is finished
+         * first, after which coalesced commits are flushed.
+         */
+        public void remove() {
+            boolean idle;
+            synchronized (lock) {
+                if (!active) {
+                    return;
+                }
+                cancel();
+                members.remove(this);
+                ready.remove(this);
+                idle = !polling;
+            }
+            if (idle) {
+                closeCoalescer();
+            }
+        }
+
+        private void cancel() {
+            active = false;
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+        }
+
+        private int poll() {
+            return poller.getAsInt();
+        }
+
+        private void closeCoalescer() {
+            if (commitCoalescer != null) {
+                commitCoalescer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.pubsubclient;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.pubsubclient.model.EventResponse;
+
+/**
+ * Demand-driven source of the events of a subscription. Every read asks the
+ * service for as many events as the subscriber has requested and not yet
+ * received, up to the config's batch size, and nothing is read while there
+ * is no demand. When a read returns fewer events than asked for, the next
+ * one waits for the config's interval or {@link PollingBackoff}.
+ *
+ * <p>Events are committed once they are {@link #acknowledge acknowledged};
+ * acknowledgements are coalesced with the config's
+ * {@link CommitCoalescingConfig}, or by batch size and 100 ms without one.
+ * Events that are never acknowledged are redelivered by the service. Every
+ * subscriber reads on its own, so several subscribers share the events of
+ * the subscription between them. Reads run on one thread per publisher and
+ * signals to a subscriber never overlap. Read errors go to the error handler
+ * and are retried; {@link #close()} completes all subscribers.
+ */
+public class EventFlowPublisher<T> implements Flow.Publisher<EventResponse<T>>, AutoCloseable {
+
+    private final PubSubClient client;
+    private final EventConsumerConfig<T> config;
+    private final ConsumerErrorHandler errorHandler;
+    private final ScheduledExecutorService executor;
+    private final CommitCoalescer commitCoalescer;
+    private final Set<EventSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    /** Orders subscribing against closing, so every subscriber is either completed by close() or sees it. */
+    private final Object lock = new Object();
+    private volatile boolean closed;
+
+    public EventFlowPublisher(PubSubClient client, EventConsumerConfig<T> config) {
+        this(client, config, error -> {
+        });
+    }
+
+    /**
+     * Payloads are decoded into the config's payload type, see
+     * {@link EventConsumerConfig#withPayloadType(Class)}.
+     */
+    public EventFlowPublisher(PubSubClient client, EventConsumerConfig<T> config, ConsumerErrorHandler errorHandler) {
+        this.client = client;
+        this.config = config;
+        this.errorHandler = errorHandler;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                Threads.factory(config.threadMode(), "pubsub-flow-" + config.subscription()));
+        // reads waiting for their delay are dropped on close
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = executor;
+        EventConsumerConfig<T> commits = config.commitCoalescing() != null ? config
+                : config.withCommitCoalescing(new CommitCoalescingConfig(config.batchSize(), 100));
+        this.commitCoalescer = new CommitCoalescer(client, commits, errorHandler, executor, false);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super EventResponse<T>> subscriber) {
+        EventSubscription subscription = new EventSubscription(subscriber);
+        synchronized (lock) {
+            if (!closed) {
+                subscriptions.add(subscription);
+                // queued ahead of the completion close() queues for it
+                subscription.execute(() -> subscriber.onSubscribe(subscription));
+                return;
+            }
+        }
+        // nothing is read for a closed publisher, so signalling from here does not overlap with reads
+        subscription.done = true;
+        subscriber.onSubscribe(subscription);
+        subscriber.onComplete();
+    }
+
+    /**
+     * Marks events as processed, they are committed with the next coalesced commit.
+     *
+     * @throws IllegalStateException if the publisher was closed
+     */
+    public void acknowledge(List<UUID> eventIds) {
+        if (closed) {
+            throw new IllegalStateException("Publisher is closed");
+        }
+        commitCoalescer.commit(eventIds);
+    }
+
+    public void acknowledge(UUID eventId) {
+        acknowledge(List.of(eventId));
+    }
+
+    /** Completes every subscriber and flushes pending acknowledgements. */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        for (EventSubscription subscription : subscriptions) {
+            subscription.close();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commitCoalescer.close();
+        executor.shutdownNow();
+    }
+
+    /** One subscriber's demand. Reads and signals happen on the publisher's thread only. */
+    private final class EventSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super EventResponse<T>> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final PollDelay pollDelay = new PollDelay(config);
+        private volatile boolean done;
+        /** Whether a delayed read is pending, so requests do not poll an idle subscription early. */
+        private boolean waiting;
+
+        EventSubscription(Flow.Subscriber<? super EventResponse<T>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                execute(() -> fail(new IllegalArgumentException("Demand must be positive, got " + n)));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            execute(this::read);
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            subscriptions.remove(this);
+        }
+
+        private void read() {
+            if (done || waiting || demand.get() == 0) {
+                return;
+            }
+            int requested = (int) Math.min(demand.get(), config.batchSize());
+            int received = 0;
+            try {
+                EventBatch<T> batch = client.readBatch(config.org(), config.topic(),
+                        config.subscription(), requested, config.payloadType(), config.codec());
+                received = batch.size();
+                for (EventResponse<T> event : batch.events()) {
+                    if (done) {
+                        // the subscriber went away, the service redelivers the rest
+                        return;
+                    }
+                    demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(event);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        errorHandler.onError(e);
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                errorHandler.onError(e);
+            }
+            long delay = received < requested ? pollDelay.next(received) : pollDelay.next(config.batchSize());
+            if (delay == 0) {
+                execute(this::read);
+            } else {
+                waiting = true;
+                schedule(() -> {
+                    waiting = false;
+                    read();
+                }, delay);
+            }
+        }
+
+        private void close() {
+            execute(this::complete);
+        }
+
+        private void complete() {
+            if (!done) {
+                done = true;
+                subscriptions.remove(this);
+                subscriber.onComplete();
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (!done) {
+                done = true;
+                subscriptions.remove(this);
+                subscriber.onError(error);
+            }
+        }
+
+        private void execute(Runnable task) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // the publisher is closed and has completed the subscriber
+            }
+        }
+
+        private void schedule(Runnable task, long delayMillis) {
+            try {
+                executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // the publisher is closed and has completed the subscriber
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.pubsubclient;
+
+import com.example.pubsubclient.model.EventResponse;
+
+/** Handles a single event, see {@link ParallelEventsHandler}. */
+@FunctionalInterface
+public interface EventHandler<T> {
+    void handle(EventResponse<T> event) throws Exception;
+}
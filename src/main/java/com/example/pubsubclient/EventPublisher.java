@@ -1,38 +1,181 @@
 package com.example.pubsubclient;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import com.example.pubsubclient.exception.EventPublishingException;
 import com.example.pubsubclient.model.EventPublishRequest;
 
-public class EventPublisher<T> {
+/**
+ * Publishes events to the topic of its {@link EventPublisherConfig}. When the
+ * config enables {@link BatchingConfig batching}, single events are buffered
+ * and sent together, so the publisher should be closed to flush what is left.
+ * With a {@link SpoolConfig spool}, events that failed in transport or with
+ * a status the retry policy retries are written to disk instead and count as
+ * published; while the spool holds events, new ones queue up behind them so
+ * the topic keeps their order. Events the service rejects for good go to the
+ * error handler, see {@link PublishingErrorHandler#onSpooledEventsRejected}. An
+ * {@link InFlightConfig} bounds the requests outstanding at a time; publishes
+ * it turns away fail with an {@link EventPublishingException} handled like
+ * any other failure.
+ */
+public class EventPublisher<T> implements AutoCloseable {
 
     private final PubSubClient client;
     private final EventPublisherConfig config;
     private final PublishingErrorHandler<T> errorHandler;
+    private final PublishAccumulator<T> accumulator;
+    private final PublishSpool spool;
+    private final InFlightBudget inFlight;
 
     public EventPublisher(EventPublisherConfig config, PubSubClient client, PublishingErrorHandler<T> errorHandler) {
         this.config = config;
         this.client = client;
         this.errorHandler = errorHandler;
+        this.spool = config.spool() == null ? null : new PublishSpool(config.spool(), client, config, errorHandler);
+        this.inFlight = config.inFlight() == null ? null : new InFlightBudget(config.inFlight());
+        this.accumulator = config.batching() == null
+                ? null
+                : new PublishAccumulator<>(config.batching(), client, config.codec(), this::send, this::failed);
     }
 
     public EventPublisher(EventPublisherConfig config, PubSubClient client) {
-        this.config = config;
-        this.client = client;
-        this.errorHandler = (error, events) -> {
-        };
+        this(config, client, (error, events) -> {
+        });
     }
 
     public int publish(EventPublishRequest<T> eventRequest) {
+        if (accumulator != null) {
+            long start = System.nanoTime();
+            return published(accumulator.add(eventRequest).join(), start);
+        }
         return this.publish(List.of(eventRequest));
     }
 
     public int publish(List<EventPublishRequest<T>> eventRequests) {
+        long start = System.nanoTime();
+        if (accumulator != null) {
+            return published(accumulator.publishAll(eventRequests).join(), start);
+        }
+        if (spool != null && spool.pending() > 0) {
+            return published(spool(eventRequests), start);
+        }
+        if (inFlight != null) {
+            return published(send(eventRequests).join(), start);
+        }
         try {
-            return this.client.publishEvents(config.org(), config.topic(), eventRequests);
+            return published(this.client.publishEvents(config.org(), config.topic(), eventRequests, config.codec()),
+                    start);
         } catch (Exception e) {
-            errorHandler.onError(e, eventRequests);
-            return 0;
+            return published(failed(e, eventRequests), start);
+        }
+    }
+
+    /**
+     * In batching mode the returned future completes once the batch carrying
+     * this event has been published.
+     */
+    public CompletableFuture<Integer> publishAsync(EventPublishRequest<T> eventRequest) {
+        if (accumulator != null) {
+            long start = System.nanoTime();
+            return accumulator.add(eventRequest).thenApply(published -> published(published, start));
+        }
+        return this.publishAsync(List.of(eventRequest));
+    }
+
+    /**
+     * Publishes without blocking the calling thread. Failures are reported to
+     * the {@link PublishingErrorHandler} and the returned future then completes
+     * with 0, mirroring {@link #publish(List)}.
+     */
+    public CompletableFuture<Integer> publishAsync(List<EventPublishRequest<T>> eventRequests) {
+        long start = System.nanoTime();
+        CompletableFuture<Integer> result = accumulator != null
+                ? accumulator.publishAll(eventRequests)
+                : send(eventRequests);
+        return result.thenApply(published -> published(published, start));
+    }
+
+    /** Publishes any events still buffered in batching mode. */
+    public void flush() {
+        if (accumulator != null) {
+            accumulator.flush();
+        }
+    }
+
+    /** Usage of the in-flight budget, {@code null} without an {@link InFlightConfig}. */
+    public InFlightBudget inFlight() {
+        return inFlight;
+    }
+
+    /** Events in the spool waiting for replay, 0 without a spool. */
+    public long spooledEvents() {
+        return spool == null ? 0 : spool.pending();
+    }
+
+    /** Spooled events that were not replayed yet stay on disk for the next publisher of the directory. */
+    @Override
+    public void close() {
+        if (accumulator != null) {
+            accumulator.close();
+        }
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    private int published(int events, long start) {
+        client.metrics().published(events, System.nanoTime() - start);
+        return events;
+    }
+
+    private CompletableFuture<Integer> send(List<EventPublishRequest<T>> eventRequests) {
+        if (spool != null && spool.pending() > 0) {
+            return CompletableFuture.completedFuture(spool(eventRequests));
+        }
+        if (inFlight == null) {
+            return this.client.publishEventsAsync(config.org(), config.topic(), eventRequests, config.codec())
+                    .exceptionally(error -> failed(Futures.unwrap(error), eventRequests));
+        }
+        // encoded first, so the budget counts the bytes the request actually holds
+        PooledBuffer body;
+        try {
+            body = client.encode(eventRequests, config.codec());
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(failed(new EventPublishingException(e), eventRequests));
+        }
+        return send(eventRequests, body);
+    }
+
+    /** Publishes events already encoded into {@code body}, which is released once it is no longer needed. */
+    private CompletableFuture<Integer> send(List<EventPublishRequest<T>> eventRequests, PooledBuffer body) {
+        if (spool != null && spool.pending() > 0) {
+            client.release(body);
+            return CompletableFuture.completedFuture(spool(eventRequests));
+        }
+        CompletableFuture<Integer> published = inFlight == null
+                ? client.publishEncodedAsync(config.org(), config.topic(), body, config.codec())
+                : inFlight.submit(body.size(),
+                        () -> client.publishEncodedAsync(config.org(), config.topic(), body, config.codec()),
+                        () -> client.release(body));
+        return published.exceptionally(error -> failed(Futures.unwrap(error), eventRequests));
+    }
+
+    private int failed(Exception error, List<EventPublishRequest<T>> eventRequests) {
+        // a rejected request is rejected again on replay, and would hold up everything spooled behind it
+        if (spool != null && client.isRetryable(error) && spool.append(eventRequests)) {
+            return eventRequests.size();
+        }
+        errorHandler.onError(error, eventRequests);
+        return 0;
+    }
+
+    private int spool(List<EventPublishRequest<T>> eventRequests) {
+        if (spool.append(eventRequests)) {
+            return eventRequests.size();
         }
+        errorHandler.onError(new EventPublishingException("Publish spool is full"), eventRequests);
+        return 0;
     }
 }
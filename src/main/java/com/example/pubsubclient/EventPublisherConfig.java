@@ -7,5 +7,42 @@ package com.example.pubsubclient;
 public record EventPublisherConfig(
         String org,
         String topic,
-        String subscription
-) {}
+        String subscription,
+        BatchingConfig batching,
+        EventCodec codec,
+        SpoolConfig spool,
+        InFlightConfig inFlight
+) {
+    public EventPublisherConfig {
+        if (codec == null) {
+            codec = EventCodec.JSON;
+        }
+    }
+
+    public EventPublisherConfig(String org, String topic, String subscription) {
+        this(org, topic, subscription, null, null, null, null);
+    }
+
+    /** Enables accumulating mode, {@code null} publishes every call directly. */
+    public EventPublisherConfig withBatching(BatchingConfig batching) {
+        return new EventPublisherConfig(org, topic, subscription, batching, codec, spool, inFlight);
+    }
+
+    /** Encodes request bodies with {@code codec}, {@code null} uses JSON. */
+    public EventPublisherConfig withCodec(EventCodec codec) {
+        return new EventPublisherConfig(org, topic, subscription, batching, codec, spool, inFlight);
+    }
+
+    /**
+     * Spools events that cannot be published to disk and replays them in the
+     * background, {@code null} reports them to the error handler instead.
+     */
+    public EventPublisherConfig withSpool(SpoolConfig spool) {
+        return new EventPublisherConfig(org, topic, subscription, batching, codec, spool, inFlight);
+    }
+
+    /** Bounds the outstanding publish requests, {@code null} sends every publish right away. */
+    public EventPublisherConfig withInFlight(InFlightConfig inFlight) {
+        return new EventPublisherConfig(org, topic, subscription, batching, codec, spool, inFlight);
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.example.pubsubclient.exception.EventConsumerException;
+import com.example.pubsubclient.model.EventResponse;
+import com.example.pubsubclient.model.LazyPayload;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.JsonPointerBasedFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * {@link TypedEventsHandler} that sends each event of a batch to the handler
+ * of the first route whose field matcher accepts it. Routes match on the
+ * value at a JSON pointer into the payload: equal to a value, accepted by a
+ * predicate, or looked up in a map of discriminator values to handlers.
+ *
+ * <p>Pointers are compiled once, when the router is built, and every pointer
+ * is read at most once per event however many routes use it. For
+ * {@link LazyPayload} payloads only the tokens up to the field are streamed;
+ * maps, lists and {@link JsonNode}s are walked; any other payload is
+ * converted to a tree first. Field values are compared as strings, longs,
+ * doubles, booleans or null; objects and arrays are passed to predicates as
+ * {@code JsonNode}s and never equal a value.
+ *
+ * <p>Every handler receives its events in one call, in batch order, along
+ * with the commit function, and commits them itself. With an executor the
+ * handlers of a batch run concurrently. Events no route matches go to the
+ * {@link Builder#otherwise fallback handler}. Without one they are left
+ * uncommitted, so they are redelivered, and reported once the routes have
+ * run; {@link Builder#commitUnmatched()} commits them unhandled instead. All
+ * handlers run even if one fails; the first failure is then rethrown so the
+ * consumer reports it.
+ */
+public class EventRouter<T> implements TypedEventsHandler<T> {
+
+    /** Marks a field that is absent from the payload. */
+    private static final Object MISSING = new Object();
+    /** Marks a field that has not been read for the current event yet. */
+    private static final Object UNREAD = new Object();
+
+    private final JsonPointer[] fields;
+    private final Rule[] rules;
+    private final List<TypedEventsHandler<T>> handlers;
+    private final int fallback;
+    private final boolean commitUnmatched;
+    private final ExecutorService executor;
+
+    private EventRouter(Builder<T> builder) {
+        this.fields = builder.fields.toArray(new JsonPointer[0]);
+        this.rules = builder.rules.toArray(new Rule[0]);
+        this.handlers = List.copyOf(builder.handlers);
+        this.fallback = builder.fallback;
+        this.commitUnmatched = builder.commitUnmatched;
+        this.executor = builder.executor;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    @Override
+    public void handle(List<EventResponse<T>> events, Function<List<UUID>, Integer> commitFn) throws Exception {
+        List<List<EventResponse<T>>> routed = new ArrayList<>(handlers.size());
+        for (int i = 0; i < handlers.size(); i++) {
+            routed.add(new ArrayList<>());
+        }
+        List<UUID> unmatched = new ArrayList<>();
+        Object[] values = new Object[fields.length];
+        for (EventResponse<T> event : events) {
+            int route = route(event.data(), values);
+            if (route < 0) {
+                unmatched.add(event.id());
+            } else {
+                routed.get(route).add(event);
+            }
+        }
+        if (commitUnmatched && !unmatched.isEmpty()) {
+            commitFn.apply(unmatched);
+        }
+
+        List<Integer> active = new ArrayList<>(handlers.size());
+        for (int i = 0; i < routed.size(); i++) {
+            if (!routed.get(i).isEmpty()) {
+                active.add(i);
+            }
+        }
+        Exception failure = executor == null || active.size() < 2
+                ? handleInOrder(active, routed, commitFn)
+                : handleConcurrently(active, routed, commitFn);
+        EventConsumerException unrouted = commitUnmatched || unmatched.isEmpty() ? null
+                : new EventConsumerException(unmatched.size() + " events matched no route: " + unmatched);
+        if (failure != null) {
+            EventConsumerException thrown = new EventConsumerException(failure);
+            if (unrouted != null) {
+                thrown.addSuppressed(unrouted);
+            }
+            throw thrown;
+        }
+        if (unrouted != null) {
+            throw unrouted;
+        }
+    }
+
+    /** Index of the handler the payload goes to, or -1 when no route matches. */
+    private int route(Object payload, Object[] values) throws IOException {
+        Arrays.fill(values, UNREAD);
+        for (Rule rule : rules) {
+            Object value = values[rule.field];
+            if (value == UNREAD) {
+                value = read(payload, fields[rule.field]);
+                values[rule.field] = value;
+            }
+            if (value != MISSING) {
+                int handler = rule.match(value);
+                if (handler >= 0) {
+                    return handler;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    private Exception handleInOrder(
+            List<Integer> active,
+            List<List<EventResponse<T>>> routed,
+            Function<List<UUID>, Integer> commitFn) {
+        Exception failure = null;
+        for (int route : active) {
+            try {
+                handlers.get(route).handle(routed.get(route), commitFn);
+            } catch (Exception e) {
+                failure = first(failure, e);
+            }
+        }
+        return failure;
+    }
+
+    private Exception handleConcurrently(
+            List<Integer> active,
+            List<List<EventResponse<T>>> routed,
+            Function<List<UUID>, Integer> commitFn) throws InterruptedException {
+        List<Future<?>> futures = new ArrayList<>(active.size());
+        for (int route : active) {
+            futures.add(executor.submit(() -> {
+                handlers.get(route).handle(routed.get(route), commitFn);
+                return null;
+            }));
+        }
+        Exception failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failure = first(failure, e.getCause() instanceof Exception cause ? cause : e);
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                throw e;
+            }
+        }
+        return failure;
+    }
+
+    private static Exception first(Exception failure, Exception next) {
+        if (failure == null) {
+            return next;
+        }
+        failure.addSuppressed(next);
+        return failure;
+    }
+
+    /** The value at {@code pointer}, or {@link #MISSING}. */
+    static Object read(Object payload, JsonPointer pointer) throws IOException {
+        if (payload instanceof LazyPayload lazy) {
+            return read(lazy, pointer);
+        }
+        if (payload instanceof JsonNode node) {
+            return read(node, pointer);
+        }
+        if (payload == null || payload instanceof Map<?, ?> || payload instanceof List<?>) {
+            return walk(payload, pointer);
+        }
+        return read(EventCodec.JSON.mapper().<JsonNode>valueToTree(payload), pointer);
+    }
+
+    private static Object read(LazyPayload payload, JsonPointer pointer) throws IOException {
+        // the filter skips every token outside the path to the field
+        try (JsonParser parser = new FilteringParserDelegate(payload.parser(), new JsonPointerBasedFilter(pointer),
+                TokenFilter.Inclusion.ONLY_INCLUDE_ALL, false)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return MISSING;
+            }
+            return switch (token) {
+                case VALUE_STRING -> parser.getText();
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> normalize(parser.getNumberValue());
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                case VALUE_NULL -> null;
+                default -> parser.readValueAsTree();
+            };
+        }
+    }
+
+    private static Object read(JsonNode node, JsonPointer pointer) {
+        JsonNode value = node.at(pointer);
+        if (value.isMissingNode()) {
+            return MISSING;
+        }
+        if (value.isTextual()) {
+            return value.textValue();
+        }
+        if (value.isNumber()) {
+            return normalize(value.numberValue());
+        }
+        if (value.isBoolean()) {
+            return value.booleanValue();
+        }
+        return value.isNull() ? null : value;
+    }
+
+    private static Object walk(Object payload, JsonPointer pointer) {
+        Object current = payload;
+        for (JsonPointer rest = pointer; !rest.matches(); rest = rest.tail()) {
+            if (current instanceof Map<?, ?> map && map.containsKey(rest.getMatchingProperty())) {
+                current = map.get(rest.getMatchingProperty());
+            } else if (current instanceof List<?> list && rest.getMatchingIndex() >= 0
+                    && rest.getMatchingIndex() < list.size()) {
+                current = list.get(rest.getMatchingIndex());
+            } else {
+                return MISSING;
+            }
+        }
+        if (current instanceof Map<?, ?> || current instanceof List<?>) {
+            return EventCodec.JSON.mapper().valueToTree(current);
+        }
+        return current instanceof Number number ? normalize(number) : current;
+    }
+
+    /** Widens numbers so that equal values compare equal whatever type they were read as. */
+    static Object normalize(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float || value instanceof Double) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof BigInteger big && big.bitLength() < 64) {
+            return big.longValue();
+        }
+        return value;
+    }
+
+    /** A matcher on one field, returning the handler index it routes to or -1. */
+    private abstract static class Rule {
+        final int field;
+
+        Rule(int field) {
+            this.field = field;
+        }
+
+        abstract int match(Object value);
+    }
+
+    private static final class PredicateRule extends Rule {
+        private final Predicate<Object> predicate;
+        private final int handler;
+
+        PredicateRule(int field, Predicate<Object> predicate, int handler) {
+            super(field);
+            this.predicate = predicate;
+            this.handler = handler;
+        }
+
+        @Override
+        int match(Object value) {
+            return predicate.test(value) ? handler : -1;
+        }
+    }
+
+    private static final class LookupRule extends Rule {
+        private final Map<Object, Integer> handlers;
+
+        LookupRule(int field, Map<Object, Integer> handlers) {
+            super(field);
+            this.handlers = handlers;
+        }
+
+        @Override
+        int match(Object value) {
+            return handlers.getOrDefault(value, -1);
+        }
+    }
+
+    /**
+     * Routes are tried in the order they are added. A handler added to several
+     * routes is called once per batch with all of their events.
+     */
+    public static final class Builder<T> {
+        private final List<JsonPointer> fields = new ArrayList<>();
+        private final List<Rule> rules = new ArrayList<>();
+        private final List<TypedEventsHandler<T>> handlers = new ArrayList<>();
+        private final Map<TypedEventsHandler<T>, Integer> handlerIndexes = new IdentityHashMap<>();
+        private int fallback = -1;
+        private boolean commitUnmatched;
+        private ExecutorService executor;
+
+        private Builder() {
+        }
+
+        /** Routes events whose field at {@code jsonPointer} equals {@code value}. */
+        public Builder<T> route(String jsonPointer, Object value, TypedEventsHandler<T> handler) {
+            Object expected = normalize(value);
+            return route(jsonPointer, actual -> Objects.equals(expected, actual), handler);
+        }
+
+        /** Routes events whose field at {@code jsonPointer} is present and accepted by {@code predicate}. */
+        public Builder<T> route(String jsonPointer, Predicate<Object> predicate, TypedEventsHandler<T> handler) {
+            Objects.requireNonNull(predicate, "predicate");
+            rules.add(new PredicateRule(field(jsonPointer), predicate, handler(handler)));
+            return this;
+        }
+
+        /**
+         * Routes events by the value of a type discriminator at {@code jsonPointer},
+         * with one lookup whatever the number of values.
+         */
+        public Builder<T> routeBy(String jsonPointer, Map<?, ? extends TypedEventsHandler<T>> handlersByValue) {
+            Map<Object, Integer> lookup = new HashMap<>();
+            handlersByValue.forEach((value, handler) -> lookup.put(normalize(value), handler(handler)));
+            rules.add(new LookupRule(field(jsonPointer), lookup));
+            return this;
+        }
+
+        /** Handles the events no route matches, instead of leaving them uncommitted. */
+        public Builder<T> otherwise(TypedEventsHandler<T> handler) {
+            this.fallback = handler(handler);
+            return this;
+        }
+
+        /**
+         * Commits the events no route matches without handling them, instead of
+         * leaving them uncommitted and reporting them. Only for topics where
+         * dropping unknown events is intended, as a mistyped pointer drops every
+         * event too.
+         */
+        public Builder<T> commitUnmatched() {
+            this.commitUnmatched = true;
+            return this;
+        }
+
+        /** Runs the handlers of a batch concurrently on {@code executor}, which the caller shuts down. */
+        public Builder<T> executor(ExecutorService executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return this;
+        }
+
+        public EventRouter<T> build() {
+            if (rules.isEmpty()) {
+                throw new IllegalStateException("At least one route is required");
+            }
+            if (commitUnmatched && fallback >= 0) {
+                throw new IllegalStateException("Unmatched events either go to otherwise or are committed");
+            }
+            return new EventRouter<>(this);
+        }
+
+        private int field(String jsonPointer) {
+            JsonPointer pointer = JsonPointer.compile(jsonPointer);
+            int index = fields.indexOf(pointer);
+            if (index < 0) {
+                fields.add(pointer);
+                index = fields.size() - 1;
+            }
+            return index;
+        }
+
+        private int handler(TypedEventsHandler<T> handler) {
+            Objects.requireNonNull(handler, "handler");
+            return handlerIndexes.computeIfAbsent(handler, h -> {
+                handlers.add(h);
+                return handlers.size() - 1;
+            });
+        }
+    }
+}
@@ -1,12 +1,6 @@
 package com.example.pubsubclient;
 
-import com.example.pubsubclient.model.EventResponse;
-
-import java.util.List;
-import java.util.UUID;
-import java.util.function.Function;
-
+/** Handler for events whose payload is left as plain maps, lists and scalars. */
 @FunctionalInterface
-public interface EventsHandler {
-    void handle(List<EventResponse> events, Function<List<UUID>, Integer> commitFn) throws Exception;
+public interface EventsHandler extends TypedEventsHandler<Object> {
 }
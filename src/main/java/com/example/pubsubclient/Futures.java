@@ -0,0 +1,15 @@
+package com.example.pubsubclient;
+
+import java.util.concurrent.CompletionException;
+
+final class Futures {
+
+    private Futures() {
+    }
+
+    /** Returns the exception a future failed with, without its {@link CompletionException} wrapper. */
+    static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception e ? e : new CompletionException(cause);
+    }
+}
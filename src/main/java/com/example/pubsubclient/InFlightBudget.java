@@ -0,0 +1,220 @@
+package com.example.pubsubclient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.example.pubsubclient.exception.EventPublishingException;
+
+/**
+ * Admission control for the publish requests of one {@link EventPublisher},
+ * see {@link InFlightConfig}. Its getters show the current usage, how long
+ * publishes waited for room and how many were turned away.
+ */
+public final class InFlightBudget {
+
+    private final InFlightConfig config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Deque<Queued> queue = new ArrayDeque<>();
+    private final Histogram waitTime = new Histogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private int requests;
+    private long bytes;
+    private long queuedBytes;
+
+    InFlightBudget(InFlightConfig config) {
+        this.config = config;
+    }
+
+    public int inFlightRequests() {
+        lock.lock();
+        try {
+            return requests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long inFlightBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Publishes waiting for room under {@link OverflowPolicy#DROP_OLDEST}. */
+    public int queuedRequests() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Time in nanoseconds that publishes waited for room before they were sent. */
+    public Histogram waitTime() {
+        return waitTime;
+    }
+
+    /** Publishes failed under {@link OverflowPolicy#FAIL}. */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /** Publishes that waited longer than the timeout under {@link OverflowPolicy#BLOCK}. */
+    public long timedOut() {
+        return timedOut.sum();
+    }
+
+    /** Publishes dropped under {@link OverflowPolicy#DROP_OLDEST}. */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Sends the request once it fits. The returned future fails with an
+     * {@link EventPublishingException} when the request is turned away, in
+     * which case {@code discard} runs instead of {@code send}.
+     */
+    CompletableFuture<Integer> submit(long size, Supplier<CompletableFuture<Integer>> send, Runnable discard) {
+        List<Queued> droppedNow = List.of();
+        Queued queued;
+        lock.lock();
+        try {
+            if (queue.isEmpty() && fits(size)) {
+                reserve(size);
+                queued = null;
+            } else {
+                switch (config.overflow()) {
+                    case FAIL:
+                        rejected.increment();
+                        discard.run();
+                        return CompletableFuture.failedFuture(
+                                new EventPublishingException("In-flight publish budget exhausted"));
+                    case BLOCK:
+                        if (!awaitRoom(size)) {
+                            timedOut.increment();
+                            discard.run();
+                            return CompletableFuture.failedFuture(new EventPublishingException(
+                                    "Timed out waiting for the in-flight publish budget"));
+                        }
+                        reserve(size);
+                        queued = null;
+                        break;
+                    default:
+                        queued = new Queued(size, send, discard, new CompletableFuture<>(), System.nanoTime());
+                        queue.addLast(queued);
+                        queuedBytes += size;
+                        droppedNow = trimQueue();
+                        break;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Queued drop : droppedNow) {
+            drop.discard().run();
+            drop.result().completeExceptionally(
+                    new EventPublishingException("Dropped to stay within the in-flight publish budget"));
+        }
+        return queued == null ? dispatch(size, send) : queued.result();
+    }
+
+    private boolean awaitRoom(long size) {
+        long start = System.nanoTime();
+        long remaining = TimeUnit.MILLISECONDS.toNanos(config.blockTimeoutMillis());
+        try {
+            while (!fits(size)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waitTime.record(System.nanoTime() - start);
+        }
+    }
+
+    /** Drops the oldest queued publishes while the queue holds more than the budget allows. */
+    private List<Queued> trimQueue() {
+        List<Queued> drops = new ArrayList<>();
+        while (queue.size() > 1 && (queue.size() > config.maxRequests() || queuedBytes > config.maxBytes())) {
+            Queued oldest = queue.pollFirst();
+            queuedBytes -= oldest.size();
+            dropped.increment();
+            drops.add(oldest);
+        }
+        return drops;
+    }
+
+    private CompletableFuture<Integer> dispatch(long size, Supplier<CompletableFuture<Integer>> send) {
+        CompletableFuture<Integer> result;
+        try {
+            result = send.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((published, error) -> release(size));
+    }
+
+    private void release(long size) {
+        List<Queued> ready = new ArrayList<>();
+        lock.lock();
+        try {
+            requests--;
+            bytes -= size;
+            while (!queue.isEmpty() && fits(queue.peekFirst().size())) {
+                Queued next = queue.pollFirst();
+                queuedBytes -= next.size();
+                reserve(next.size());
+                ready.add(next);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Queued next : ready) {
+            waitTime.record(System.nanoTime() - next.enqueuedNanos());
+            dispatch(next.size(), next.send()).whenComplete((published, error) -> {
+                if (error != null) {
+                    next.result().completeExceptionally(error);
+                } else {
+                    next.result().complete(published);
+                }
+            });
+        }
+    }
+
+    private boolean fits(long size) {
+        if (requests == 0) {
+            return true;
+        }
+        return requests < config.maxRequests() && bytes + size <= config.maxBytes();
+    }
+
+    private void reserve(long size) {
+        requests++;
+        bytes += size;
+    }
+
+    private record Queued(long size, Supplier<CompletableFuture<Integer>> send, Runnable discard,
+            CompletableFuture<Integer> result, long enqueuedNanos) {
+    }
+}
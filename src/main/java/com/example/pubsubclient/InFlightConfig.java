@@ -0,0 +1,27 @@
+package com.example.pubsubclient;
+
+/**
+ * Budget for the publish requests an {@link EventPublisher} has outstanding.
+ * A request is admitted while both limits hold; a single request larger than
+ * {@code maxBytes} is only admitted when nothing else is in flight.
+ *
+ * @param maxRequests        maximum number of outstanding requests
+ * @param maxBytes           maximum encoded size of the outstanding requests
+ * @param overflow           what happens to a publish that does not fit
+ * @param blockTimeoutMillis how long {@link OverflowPolicy#BLOCK} waits
+ */
+public record InFlightConfig(
+        int maxRequests,
+        long maxBytes,
+        OverflowPolicy overflow,
+        long blockTimeoutMillis
+) {
+    public InFlightConfig {
+        if (maxRequests <= 0 || maxBytes <= 0 || blockTimeoutMillis < 0) {
+            throw new IllegalArgumentException("In-flight limits must be positive");
+        }
+        if (overflow == null) {
+            throw new IllegalArgumentException("Overflow policy is required");
+        }
+    }
+}
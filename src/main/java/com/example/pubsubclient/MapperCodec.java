@@ -0,0 +1,5 @@
+package com.example.pubsubclient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+record MapperCodec(String contentType, ObjectMapper mapper) implements EventCodec {}
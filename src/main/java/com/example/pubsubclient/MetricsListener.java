@@ -0,0 +1,32 @@
+package com.example.pubsubclient;
+
+/**
+ * Receives every measurement {@link ClientMetrics} records, for bridging into
+ * another metrics system. Callbacks run on the thread that did the work and
+ * take primitives only, so implementations should be quick.
+ */
+public interface MetricsListener {
+
+    /**
+     * A request completed. {@code statusCode} is 0 when no response arrived;
+     * {@code bytesSent} is the request body as sent.
+     */
+    default void onRequest(Endpoint endpoint, int statusCode, long latencyNanos, long bytesSent) {
+    }
+
+    /** A response body of {@code bytes} was read, after content decoding. */
+    default void onBytesReceived(Endpoint endpoint, long bytes) {
+    }
+
+    /** A handler finished a batch of {@code events}. */
+    default void onBatchHandled(int events, long handlerNanos) {
+    }
+
+    /** A consumer with {@link BatchSizing} of {@code subscription} changed its batch size. */
+    default void onBatchSizeChanged(String subscription, int batchSize) {
+    }
+
+    /** An {@link EventPublisher} call completed with {@code events} published. */
+    default void onPublished(int events, long latencyNanos) {
+    }
+}
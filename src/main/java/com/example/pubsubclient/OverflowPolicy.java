@@ -0,0 +1,14 @@
+package com.example.pubsubclient;
+
+/** What an {@link EventPublisher} does with a publish that does not fit into its {@link InFlightConfig}. */
+public enum OverflowPolicy {
+    /** Wait for in-flight requests to complete, failing after the configured timeout. */
+    BLOCK,
+    /** Fail the publish right away. */
+    FAIL,
+    /**
+     * Queue the publish and, when the queue itself exceeds the budget, drop
+     * the oldest queued publishes to make room.
+     */
+    DROP_OLDEST
+}
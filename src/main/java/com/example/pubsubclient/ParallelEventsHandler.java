@@ -0,0 +1,106 @@
+package com.example.pubsubclient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import com.example.pubsubclient.exception.EventConsumerException;
+import com.example.pubsubclient.model.EventResponse;
+
+/**
+ * {@link TypedEventsHandler} that fans the events of a batch out to a worker pool.
+ * Events with the same key, as returned by the key extractor, are handled one
+ * after another in batch order, while different keys run in parallel. Once
+ * the batch is done, the longest prefix of successfully handled events is
+ * committed; the first failure is then rethrown so the consumer reports it.
+ */
+public class ParallelEventsHandler<T> implements TypedEventsHandler<T>, AutoCloseable {
+
+    private final EventHandler<T> eventHandler;
+    private final Function<EventResponse<T>, ?> keyExtractor;
+    private final ExecutorService workers;
+    private final boolean ownsWorkers;
+
+    public ParallelEventsHandler(EventHandler<T> eventHandler, Function<EventResponse<T>, ?> keyExtractor, int parallelism) {
+        this(eventHandler, keyExtractor, Executors.newFixedThreadPool(parallelism), true);
+    }
+
+    public ParallelEventsHandler(
+            EventHandler<T> eventHandler,
+            Function<EventResponse<T>, ?> keyExtractor,
+            ExecutorService workers) {
+        this(eventHandler, keyExtractor, workers, false);
+    }
+
+    private ParallelEventsHandler(
+            EventHandler<T> eventHandler,
+            Function<EventResponse<T>, ?> keyExtractor,
+            ExecutorService workers,
+            boolean ownsWorkers) {
+        this.eventHandler = eventHandler;
+        this.keyExtractor = keyExtractor;
+        this.workers = workers;
+        this.ownsWorkers = ownsWorkers;
+    }
+
+    @Override
+    public void handle(List<EventResponse<T>> events, Function<List<UUID>, Integer> commitFn) throws Exception {
+        Map<Object, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            groups.computeIfAbsent(keyExtractor.apply(events.get(i)), key -> new ArrayList<>()).add(i);
+        }
+
+        boolean[] done = new boolean[events.size()];
+        List<Future<?>> futures = new ArrayList<>(groups.size());
+        for (List<Integer> group : groups.values()) {
+            futures.add(workers.submit(() -> {
+                for (int index : group) {
+                    // a failure leaves the rest of the key unhandled to keep its order
+                    eventHandler.handle(events.get(index));
+                    done[index] = true;
+                }
+                return null;
+            }));
+        }
+
+        Exception failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception cause ? cause : e;
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                throw e;
+            }
+        }
+
+        List<UUID> committable = new ArrayList<>();
+        for (int i = 0; i < done.length && done[i]; i++) {
+            committable.add(events.get(i).id());
+        }
+        if (!committable.isEmpty()) {
+            commitFn.apply(committable);
+        }
+        if (failure != null) {
+            throw new EventConsumerException(failure);
+        }
+    }
+
+    /** Shuts the worker pool down if it was created by this handler. */
+    @Override
+    public void close() {
+        if (ownsWorkers) {
+            workers.shutdown();
+        }
+    }
+}
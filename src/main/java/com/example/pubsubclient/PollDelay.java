@@ -0,0 +1,44 @@
+package com.example.pubsubclient;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delay before the next poll of a subscription: none after a full batch, the
+ * configured interval after a partial one, and the growing, jittered delay of
+ * the config's {@link PollingBackoff} while nothing arrives.
+ */
+final class PollDelay {
+
+    private final EventConsumerConfig<?> config;
+    private long idleDelayMillis;
+
+    PollDelay(EventConsumerConfig<?> config) {
+        this.config = config;
+    }
+
+    void reset() {
+        idleDelayMillis = 0;
+    }
+
+    long next(int received) {
+        return next(received, config.batchSize());
+    }
+
+    /** Delay after a read that asked for {@code requested} events, for consumers that vary their batch size. */
+    long next(int received, int requested) {
+        if (received >= requested) {
+            idleDelayMillis = 0;
+            return 0;
+        }
+        if (received > 0 || config.backoff() == null) {
+            idleDelayMillis = 0;
+            return config.intervalMillis();
+        }
+        PollingBackoff backoff = config.backoff();
+        idleDelayMillis = idleDelayMillis == 0
+                ? Math.max(1, config.intervalMillis())
+                : (long) Math.min(backoff.maxDelayMillis(), idleDelayMillis * backoff.multiplier());
+        long jitter = (long) (idleDelayMillis * backoff.jitter() * ThreadLocalRandom.current().nextDouble());
+        return idleDelayMillis - jitter;
+    }
+}
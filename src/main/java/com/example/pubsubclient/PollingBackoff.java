@@ -0,0 +1,22 @@
+package com.example.pubsubclient;
+
+/**
+ * Adaptive polling for {@link EventConsumer}. A full batch is followed by an
+ * immediate fetch, a partial batch by the configured interval, and empty polls
+ * back off exponentially from the interval up to {@code maxDelayMillis}.
+ *
+ * @param maxDelayMillis upper bound for the delay between empty polls
+ * @param multiplier     growth factor of the delay after every empty poll
+ * @param jitter         fraction of the delay, between 0 and 1, that is randomised
+ */
+public record PollingBackoff(
+        long maxDelayMillis,
+        double multiplier,
+        double jitter
+) {
+    public PollingBackoff {
+        if (maxDelayMillis <= 0 || multiplier < 1 || jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Invalid polling backoff");
+        }
+    }
+}
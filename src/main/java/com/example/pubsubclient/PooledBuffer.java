@@ -0,0 +1,108 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Growable byte array that request bodies are serialized into. The content is
+ * published to the {@link java.net.http.HttpClient} without being copied, so
+ * the buffer must not be reused before the request has completed.
+ */
+final class PooledBuffer extends OutputStream {
+
+    private byte[] bytes;
+    private int count;
+    private String contentEncoding;
+
+    PooledBuffer(int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        bytes[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, bytes, count, len);
+        count += len;
+    }
+
+    int size() {
+        return count;
+    }
+
+    int capacity() {
+        return bytes.length;
+    }
+
+    void reset() {
+        count = 0;
+        contentEncoding = null;
+    }
+
+    /** The coding the content is compressed with, {@code null} when it is not. */
+    String contentEncoding() {
+        return contentEncoding;
+    }
+
+    void contentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, count);
+    }
+
+    /** Publishes the current content as the body of a request. */
+    HttpRequest.BodyPublisher bodyPublisher() {
+        return new BodyPublisher(ByteBuffer.wrap(bytes, 0, count).asReadOnlyBuffer());
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+
+    private record BodyPublisher(ByteBuffer content) implements HttpRequest.BodyPublisher {
+
+        @Override
+        public long contentLength() {
+            return content.remaining();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            AtomicBoolean done = new AtomicBoolean();
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    if (!done.compareAndSet(false, true)) {
+                        return;
+                    }
+                    if (n <= 0) {
+                        subscriber.onError(new IllegalArgumentException("non-positive request: " + n));
+                        return;
+                    }
+                    // every subscription, e.g. a retried request, starts at the beginning
+                    subscriber.onNext(content.duplicate());
+                    subscriber.onComplete();
+                }
+
+                @Override
+                public void cancel() {
+                    done.set(true);
+                }
+            });
+        }
+    }
+}
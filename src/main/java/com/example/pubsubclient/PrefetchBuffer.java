@@ -0,0 +1,79 @@
+package com.example.pubsubclient;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Batches read ahead by {@link EventConsumer}, bounded by the event count and
+ * byte limits of a {@link PrefetchConfig}.
+ */
+class PrefetchBuffer<T> {
+
+    private final PrefetchConfig limits;
+    private final Deque<EventBatch<T>> batches = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    private int events;
+    private long bytes;
+
+    PrefetchBuffer(PrefetchConfig limits) {
+        this.limits = limits;
+    }
+
+    /** Blocks until a batch of {@code batchSize} events fits into the buffer. */
+    void awaitCapacity(int batchSize) throws InterruptedException {
+        lock.lock();
+        try {
+            while (!batches.isEmpty()
+                    && (events + batchSize > limits.maxEvents() || bytes >= limits.maxBytes())) {
+                notFull.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(EventBatch<T> batch) {
+        lock.lock();
+        try {
+            batches.addLast(batch);
+            events += batch.size();
+            bytes += batch.bytes();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    EventBatch<T> take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (batches.isEmpty()) {
+                notEmpty.await();
+            }
+            EventBatch<T> batch = batches.removeFirst();
+            events -= batch.size();
+            bytes -= batch.bytes();
+            notFull.signal();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            batches.clear();
+            events = 0;
+            bytes = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
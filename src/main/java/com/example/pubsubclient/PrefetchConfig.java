@@ -0,0 +1,21 @@
+package com.example.pubsubclient;
+
+/**
+ * Limits for the prefetch stage of {@link EventConsumer}. While one batch is
+ * handled, further batches are read ahead until the buffer holds
+ * {@code maxEvents} events or {@code maxBytes} of response bodies. Both limits
+ * are checked before a read, so a single batch may exceed the byte limit.
+ *
+ * @param maxEvents maximum number of events waiting to be handled
+ * @param maxBytes  maximum estimated size of the events waiting to be handled
+ */
+public record PrefetchConfig(
+        int maxEvents,
+        long maxBytes
+) {
+    public PrefetchConfig {
+        if (maxEvents <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Prefetch limits must be positive");
+        }
+    }
+}
@@ -1,130 +1,864 @@
 package com.example.pubsubclient;
 
+import com.example.pubsubclient.exception.CircuitOpenException;
+import com.example.pubsubclient.exception.EventConflictException;
 import com.example.pubsubclient.exception.EventConsumerException;
 import com.example.pubsubclient.exception.EventPublishingException;
 import com.example.pubsubclient.model.*;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 class PubSubClient {
+    private static final List<EventCodec> BUILT_IN_CODECS = List.of(EventCodec.JSON, EventCodec.SMILE, EventCodec.CBOR);
+
     private final String baseUrl;
     private final HttpClient httpClient;
-    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final Map<EventCodec, CodecContext> codecs = new ConcurrentHashMap<>();
+    private final CodecContext json = context(EventCodec.JSON);
+    private final ClientMetrics metrics = new ClientMetrics();
+    private final BufferPool requestBuffers = new BufferPool(64, 8 * 1024, 1024 * 1024);
+    private final CompressionConfig compression;
+    private final Map<String, ContentCoding> codings = new LinkedHashMap<>();
+    private final String acceptEncoding;
+    private final HttpResponse.BodyHandler<byte[]> bytesBodyHandler = this::decodedBytes;
+    private final RetryPolicy retryPolicy;
+    private final Retrier retrier;
+    private final CircuitBreaker[] breakers = new CircuitBreaker[Endpoint.values().length];
+    private final Duration requestTimeout;
+    private final RequestLimiter limiter;
+    private final Map<Endpoints.Key, Endpoints> endpoints = new ConcurrentHashMap<>();
 
     public PubSubClient(String baseUrl) {
+        this(baseUrl, null);
+    }
+
+    /**
+     * Client that compresses request bodies and accepts compressed responses,
+     * {@code null} compression exchanges plain bodies only.
+     */
+    public PubSubClient(String baseUrl, CompressionConfig compression) {
+        this(baseUrl, compression, null, null);
+    }
+
+    /**
+     * Client that retries failed requests as told by {@code retry} and guards
+     * every endpoint with a circuit breaker configured by {@code circuitBreaker};
+     * {@code null} turns either off.
+     */
+    public PubSubClient(String baseUrl, CompressionConfig compression, RetryPolicy retry,
+            CircuitBreakerConfig circuitBreaker) {
+        this(baseUrl, compression, retry, circuitBreaker, null);
+    }
+
+    /**
+     * Client whose {@link HttpClient} runs its tasks on {@code threadMode}
+     * threads, {@code null} keeps the HttpClient's own platform thread pool.
+     */
+    public PubSubClient(String baseUrl, CompressionConfig compression, RetryPolicy retry,
+            CircuitBreakerConfig circuitBreaker, ThreadMode threadMode) {
+        this(builder(baseUrl)
+                .compression(compression)
+                .retryPolicy(retry)
+                .circuitBreaker(circuitBreaker)
+                .threadMode(threadMode));
+    }
+
+    /** Builder for a client with transport options the constructors do not offer. */
+    public static Builder builder(String baseUrl) {
+        return new Builder(baseUrl);
+    }
+
+    private PubSubClient(Builder builder) {
+        String baseUrl = builder.baseUrl;
+        CompressionConfig compression = builder.compression;
+        RetryPolicy retry = builder.retryPolicy;
+        CircuitBreakerConfig circuitBreaker = builder.circuitBreaker;
         this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
-        this.httpClient = HttpClient.newHttpClient();
+        this.httpClient = builder.httpClient();
+        this.requestTimeout = builder.requestTimeout;
+        this.limiter = builder.maxConcurrentRequests > 0 ? new RequestLimiter(builder.maxConcurrentRequests) : null;
+        this.compression = compression;
+        context(EventCodec.SMILE);
+        context(EventCodec.CBOR);
+        for (ContentCoding coding : List.of(ContentCoding.GZIP, ContentCoding.DEFLATE)) {
+            codings.put(coding.name(), coding);
+        }
+        for (ContentCoding coding : ServiceLoader.load(ContentCoding.class)) {
+            codings.put(coding.name().toLowerCase(Locale.ROOT), coding);
+        }
+        if (compression != null) {
+            codings.put(compression.coding().name().toLowerCase(Locale.ROOT), compression.coding());
+        }
+        this.acceptEncoding = compression == null ? null : String.join(", ", codings.keySet());
+        this.retryPolicy = retry;
+        this.retrier = retry == null ? null : new Retrier(retry);
+        if (circuitBreaker != null) {
+            for (Endpoint endpoint : Endpoint.values()) {
+                breakers[endpoint.ordinal()] = new CircuitBreaker(circuitBreaker);
+            }
+        }
     }
 
     public <T> int publishEvents(String orgName, String topicName, List<EventPublishRequest<T>> events)
             throws IOException, InterruptedException {
-        String body = mapper.writeValueAsString(events);
-        HttpResponse<String> resp = send(
-                HttpRequest.newBuilder(URI.create(baseUrl + "/" + orgName + "/topics/" + topicName + "/events"))
-                        .header("Content-Type", "application/json")
-                        .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
-                        .build());
-
-        switch (resp.statusCode()) {
-            case 200:
-                return Integer.parseInt(resp.body());
-            case 204:
-                return 0;
-            case 400:
-                throw new EventPublishingException("Error on your request:" + resp.body());
-            case 404:
-                throw new EventPublishingException("Subscription, topic or organization not found");
-            case 500:
-                throw new EventPublishingException("Internal Server Error");
-            default:
+        return publishEvents(orgName, topicName, events, EventCodec.JSON);
+    }
+
+    /** Publishes events encoded with {@code codec} rather than JSON. */
+    public <T> int publishEvents(String orgName, String topicName, List<EventPublishRequest<T>> events,
+            EventCodec codec) throws IOException, InterruptedException {
+        CodecContext context = context(codec);
+        PooledBuffer body = encode(events, codec);
+        try {
+            return handlePublishResponse(send(publishRequest(orgName, topicName, context, body), Endpoint.PUBLISH, body.size()));
+        } finally {
+            requestBuffers.release(body);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #publishEvents}. The returned future
+     * completes with the number of published events, or exceptionally with the
+     * same exceptions the blocking call would throw.
+     */
+    public <T> CompletableFuture<Integer> publishEventsAsync(String orgName, String topicName,
+            List<EventPublishRequest<T>> events) {
+        return publishEventsAsync(orgName, topicName, events, EventCodec.JSON);
+    }
+
+    /** Non-blocking variant of {@link #publishEvents(String, String, List, EventCodec)}. */
+    public <T> CompletableFuture<Integer> publishEventsAsync(String orgName, String topicName,
+            List<EventPublishRequest<T>> events, EventCodec codec) {
+        PooledBuffer body;
+        try {
+            body = encode(events, codec);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new EventPublishingException(e));
+        }
+        return publishEncodedAsync(orgName, topicName, body, codec);
+    }
+
+    /**
+     * Publishes a body produced by {@link #encode} with the same codec and
+     * releases it once the request has completed.
+     */
+    CompletableFuture<Integer> publishEncodedAsync(String orgName, String topicName, PooledBuffer body,
+            EventCodec codec) {
+        return sendAsync(publishRequest(orgName, topicName, context(codec), body), Endpoint.PUBLISH, body.size())
+                .whenComplete((resp, error) -> requestBuffers.release(body))
+                .thenApply(this::handlePublishResponse);
+    }
+
+    /**
+     * Serializes {@code value} straight into a pooled buffer, which the caller
+     * hands back to {@link #release} once the request has completed.
+     */
+    PooledBuffer encode(Object value, EventCodec codec) throws IOException {
+        return compress(serialize(value, codec));
+    }
+
+    /** Like {@link #encode} without compressing, for callers that check the plain size first. */
+    PooledBuffer serialize(Object value, EventCodec codec) throws IOException {
+        PooledBuffer buffer = requestBuffers.acquire();
+        try {
+            codec.mapper().writeValue(buffer, value);
+        } catch (IOException e) {
+            requestBuffers.release(buffer);
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * Compresses a body from {@link #serialize} if the client is configured to.
+     * The buffer is released when a compressed one is returned instead.
+     */
+    PooledBuffer compress(PooledBuffer buffer) throws IOException {
+        if (compression == null || buffer.size() < compression.minBytes()) {
+            return buffer;
+        }
+        PooledBuffer compressed = requestBuffers.acquire();
+        try (OutputStream out = compression.coding().compress(compressed)) {
+            buffer.writeTo(out);
+        } catch (IOException e) {
+            requestBuffers.release(compressed);
+            throw e;
+        } finally {
+            requestBuffers.release(buffer);
+        }
+        compressed.contentEncoding(compression.coding().name());
+        return compressed;
+    }
+
+    void release(PooledBuffer buffer) {
+        requestBuffers.release(buffer);
+    }
+
+    private HttpRequest publishRequest(String orgName, String topicName, CodecContext codec, PooledBuffer body) {
+        return post(endpoints(orgName, topicName, null).publish(), codec, body);
+    }
+
+    private int handlePublishResponse(HttpResponse<byte[]> resp) {
+        return resp.statusCode() == 200 ? count(resp) : 0;
+    }
+
+    public List<EventResponse<Object>> readEvents(String orgName, String topicName, String subscriptionName,
+            int batchSize) throws IOException, InterruptedException {
+        return this.<Object>readBatch(orgName, topicName, subscriptionName, batchSize, null, EventCodec.JSON)
+                .events();
+    }
+
+    /** Reads events whose payload is decoded straight into {@code payloadType}. */
+    public <T> List<EventResponse<T>> readEvents(String orgName, String topicName, String subscriptionName,
+            int batchSize, Class<T> payloadType) throws IOException, InterruptedException {
+        return readEvents(orgName, topicName, subscriptionName, batchSize, payloadType, EventCodec.JSON);
+    }
+
+    /**
+     * Reads typed events, asking the service for {@code codec}'s format. The
+     * response is decoded with the codec matching its content type.
+     */
+    public <T> List<EventResponse<T>> readEvents(String orgName, String topicName, String subscriptionName,
+            int batchSize, Class<T> payloadType, EventCodec codec) throws IOException, InterruptedException {
+        return this.<T>readBatch(orgName, topicName, subscriptionName, batchSize,
+                TypeFactory.defaultInstance().constructType(payloadType), codec).events();
+    }
+
+    /** Reads one batch, decoding the response body as it arrives rather than buffering it first. */
+    <T> EventBatch<T> readBatch(String orgName, String topicName, String subscriptionName, int batchSize,
+            JavaType payloadType, EventCodec codec) throws IOException, InterruptedException {
+        CodecContext requested = context(codec);
+        HttpResponse<InputStream> resp = send(readRequest(orgName, topicName, subscriptionName, batchSize, requested),
+                HttpResponse.BodyHandlers.ofInputStream(), Endpoint.READ, 0);
+        try (InputStream raw = resp.body()) {
+            if (!hasEvents(resp)) {
+                return EventBatch.empty();
+            }
+            CountingInputStream body = new CountingInputStream(decode(resp.headers(), raw));
+            try (MappingIterator<EventResponse<T>> events = responseCodec(resp.headers(), requested)
+                    .eventReader(payloadType).readValues(body)) {
+                List<EventResponse<T>> batch = events.readAll();
+                metrics.received(Endpoint.READ, body.count);
+                return new EventBatch<>(batch, body.count);
+            }
+        }
+    }
+
+    /**
+     * Reads one batch and hands every event to {@code handler} as soon as it
+     * is decoded, so only one event of the batch is held in memory at a time.
+     * Returns the number of events handled.
+     */
+    <T> int streamEvents(String orgName, String topicName, String subscriptionName, int batchSize,
+            JavaType payloadType, EventCodec codec, TypedEventsHandler<T> handler,
+            Function<List<UUID>, Integer> commitFn) throws Exception {
+        CodecContext requested = context(codec);
+        HttpResponse<InputStream> resp = send(readRequest(orgName, topicName, subscriptionName, batchSize, requested),
+                HttpResponse.BodyHandlers.ofInputStream(), Endpoint.READ, 0);
+        try (InputStream raw = resp.body()) {
+            if (!hasEvents(resp)) {
                 return 0;
+            }
+            int handled = 0;
+            CountingInputStream body = new CountingInputStream(decode(resp.headers(), raw));
+            try (MappingIterator<EventResponse<T>> events = responseCodec(resp.headers(), requested)
+                    .eventReader(payloadType).readValues(body)) {
+                while (events.hasNextValue()) {
+                    List<EventResponse<T>> event = List.of(events.nextValue());
+                    long start = System.nanoTime();
+                    handler.handle(event, commitFn);
+                    metrics.batchHandled(1, System.nanoTime() - start);
+                    handled++;
+                }
+            }
+            metrics.received(Endpoint.READ, body.count);
+            return handled;
         }
     }
 
-    public List<EventResponse> readEvents(String orgName, String topicName, String subscriptionName, int batchSize)
-            throws IOException, InterruptedException {
-        String url = String.format("%s/%s/topics/%s/subscriptions/%s/events?batchSize=%d", baseUrl, orgName, topicName,
-                subscriptionName, batchSize);
-        HttpResponse<String> resp = send(HttpRequest.newBuilder(URI.create(url))
+    private HttpRequest readRequest(String orgName, String topicName, String subscriptionName, int batchSize,
+            CodecContext codec) {
+        return request(endpoints(orgName, topicName, subscriptionName).read(batchSize), codec)
                 .GET()
-                .header("Content-Type", "application/json")
-                .build());
-
-        switch (resp.statusCode()) {
-            case 200:
-                return mapper.readValue(resp.body(), new TypeReference<List<EventResponse>>() {
-                });
-            case 204:
-                return List.of();
-            case 404:
-                throw new EventConsumerException("Subscription, topic or organization not found");
-            case 409:
-                throw new EventConsumerException("Conflict while reading events:s");
-            case 500:
-                throw new EventConsumerException("Internal Server Error");
-            default:
-                return List.of();
+                .build();
+    }
+
+    private HttpRequest.Builder request(URI uri, CodecContext codec) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .header("Content-Type", codec.contentType())
+                .header("Accept", codec.accept());
+        if (acceptEncoding != null) {
+            builder.header("Accept-Encoding", acceptEncoding);
         }
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+        return builder;
+    }
+
+    private HttpRequest post(URI uri, CodecContext codec, PooledBuffer body) {
+        HttpRequest.Builder builder = request(uri, codec);
+        if (body.contentEncoding() != null) {
+            builder.header("Content-Encoding", body.contentEncoding());
+        }
+        return builder.POST(body.bodyPublisher()).build();
+    }
+
+    private boolean hasEvents(HttpResponse<?> resp) {
+        return resp.statusCode() == 200;
     }
 
     public int commitEvents(String orgName, String topicName, String subscriptionName, List<UUID> eventIds)
             throws IOException, InterruptedException {
-        String url = String.format("%s/%s/topics/%s/subscriptions/%s/event-commits", baseUrl, orgName, topicName,
-                subscriptionName);
-        String body = mapper.writeValueAsString(eventIds);
-        HttpResponse<String> resp = send(HttpRequest.newBuilder(URI.create(url))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(body))
-                .build());
-
-        switch (resp.statusCode()) {
-            case 200:
-                return Integer.parseInt(resp.body());
-            case 204:
-                return 0;
-            case 400:
-                throw new EventConsumerException("Error on your request:" + resp.body());
-            case 404:
-                throw new EventConsumerException("Subscription, topic or organization not found");
-            case 500:
-                throw new EventConsumerException("PubSub: Internal Server Error");
-            default:
-                return 0;
+        return commitEvents(orgName, topicName, subscriptionName, eventIds, EventCodec.JSON);
+    }
+
+    /** Commits events with a request body encoded by {@code codec}. */
+    public int commitEvents(String orgName, String topicName, String subscriptionName, List<UUID> eventIds,
+            EventCodec codec) throws IOException, InterruptedException {
+        CodecContext context = context(codec);
+        PooledBuffer body = encode(eventIds, codec);
+        try {
+            return handleCommitResponse(send(commitRequest(orgName, topicName, subscriptionName, context, body), Endpoint.COMMIT,
+                    body.size()));
+        } finally {
+            requestBuffers.release(body);
         }
     }
 
-    public void consumeEvents(String org, String topic, String sub, int batchSize, EventsHandler handler)
+    /** Non-blocking variant of {@link #commitEvents}. */
+    public CompletableFuture<Integer> commitEventsAsync(String orgName, String topicName, String subscriptionName,
+            List<UUID> eventIds) {
+        return commitEventsAsync(orgName, topicName, subscriptionName, eventIds, EventCodec.JSON);
+    }
+
+    /** Non-blocking variant of {@link #commitEvents(String, String, String, List, EventCodec)}. */
+    public CompletableFuture<Integer> commitEventsAsync(String orgName, String topicName, String subscriptionName,
+            List<UUID> eventIds, EventCodec codec) {
+        CodecContext context = context(codec);
+        PooledBuffer body;
+        try {
+            body = encode(eventIds, codec);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new EventConsumerException(e));
+        }
+        return sendAsync(commitRequest(orgName, topicName, subscriptionName, context, body), Endpoint.COMMIT,
+                body.size())
+                .whenComplete((resp, error) -> requestBuffers.release(body))
+                .thenApply(this::handleCommitResponse);
+    }
+
+    private HttpRequest commitRequest(String orgName, String topicName, String subscriptionName, CodecContext codec,
+            PooledBuffer body) {
+        return post(endpoints(orgName, topicName, subscriptionName).commit(), codec, body);
+    }
+
+    private int handleCommitResponse(HttpResponse<byte[]> resp) {
+        return resp.statusCode() == 200 ? count(resp) : 0;
+    }
+
+    /** Reads one batch and hands it to {@code handler}, returning the number of events read. */
+    public int consumeEvents(String org, String topic, String sub, int batchSize, EventsHandler handler)
             throws Exception {
-        List<EventResponse> events = readEvents(org, topic, sub, batchSize);
+        return handleEvents(readEvents(org, topic, sub, batchSize), handler,
+                commitFunction(org, topic, sub, EventCodec.JSON));
+    }
 
+    /** Hands already read events to {@code handler}, returning the number of events handled. */
+    <T> int handleEvents(List<EventResponse<T>> events, TypedEventsHandler<T> handler,
+            Function<List<UUID>, Integer> commitFn) throws Exception {
         if (events.isEmpty()) {
-            return;
+            return 0;
         }
-        Function<List<UUID>, Integer> commitFn = ids -> {
+        long start = System.nanoTime();
+        handler.handle(events, commitFn);
+        metrics.batchHandled(events.size(), System.nanoTime() - start);
+        return events.size();
+    }
+
+    /** The blocking {@code commitFn} handed to {@link EventsHandler}s. */
+    Function<List<UUID>, Integer> commitFunction(String org, String topic, String sub, EventCodec codec) {
+        return ids -> {
             try {
-                return commitEvents(org, topic, sub, ids);
+                return commitEvents(org, topic, sub, ids, codec);
             } catch (Exception e) {
                 throw new EventConsumerException(e);
             }
         };
-        handler.handle(events, commitFn);
     }
 
-    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
-        HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (resp.statusCode() >= 400) {
-            throw new RuntimeException("Request failed with status code " + resp.statusCode());
+    /** Request counters, latencies and handler timings of this client. */
+    public ClientMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Whether a request that failed with {@code error} may succeed later:
+     * transport errors, an open circuit and the statuses the retry policy
+     * retries. Rejections such as 400 or 404 and local failures are final.
+     */
+    boolean isRetryable(Exception error) {
+        if (error instanceof JsonProcessingException) {
+            return false;
+        }
+        if (error instanceof IOException || error instanceof CircuitOpenException) {
+            return true;
+        }
+        int status = error instanceof EventPublishingException e ? e.statusCode()
+                : error instanceof EventConsumerException e ? e.statusCode() : 0;
+        return status > 0 && Retrier.isFailure(retryPolicy, status);
+    }
+
+    /** Circuit breaker of {@code endpoint}, {@code null} when the client has none. */
+    public CircuitBreaker circuitBreaker(Endpoint endpoint) {
+        return breakers[endpoint.ordinal()];
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request, Endpoint endpoint, long bytesSent)
+            throws IOException, InterruptedException {
+        return send(request, bytesBodyHandler, endpoint, bytesSent);
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, Endpoint endpoint,
+            long bytesSent) throws IOException, InterruptedException {
+        CircuitBreaker breaker = circuitBreaker(endpoint);
+        for (int attempt = 1; ; attempt++) {
+            acquire(breaker, endpoint);
+            long start = System.nanoTime();
+            HttpResponse<T> resp;
+            try {
+                resp = exchange(request, bodyHandler);
+            } catch (IOException e) {
+                metrics.request(endpoint, 0, System.nanoTime() - start, bytesSent);
+                if (!failed(breaker, attempt)) {
+                    throw e;
+                }
+                retry(endpoint, attempt, null);
+                continue;
+            } catch (InterruptedException | RuntimeException e) {
+                metrics.request(endpoint, 0, System.nanoTime() - start, bytesSent);
+                if (breaker != null) {
+                    breaker.onIgnored();
+                }
+                throw e;
+            }
+            record(resp, endpoint, start, bytesSent);
+            if (!Retrier.isFailure(retryPolicy, resp.statusCode())) {
+                succeeded(breaker);
+            } else if (failed(breaker, attempt)) {
+                discard(resp);
+                retry(endpoint, attempt, resp.headers());
+                continue;
+            }
+            return checkStatus(resp, endpoint);
+        }
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest request, Endpoint endpoint,
+            long bytesSent) {
+        return sendAsync(request, endpoint, bytesSent, 1);
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest request, Endpoint endpoint,
+            long bytesSent, int attempt) {
+        CircuitBreaker breaker = circuitBreaker(endpoint);
+        try {
+            acquire(breaker, endpoint);
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        return exchangeAsync(request)
+                .handle((resp, error) -> {
+                    if (error != null) {
+                        metrics.request(endpoint, 0, System.nanoTime() - start, bytesSent);
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        if (!(cause instanceof IOException)) {
+                            if (breaker != null) {
+                                breaker.onIgnored();
+                            }
+                            return CompletableFuture.<HttpResponse<byte[]>>failedFuture(cause);
+                        }
+                        if (!failed(breaker, attempt)) {
+                            return CompletableFuture.<HttpResponse<byte[]>>failedFuture(cause);
+                        }
+                        return retryAsync(request, endpoint, bytesSent, attempt, null);
+                    }
+                    record(resp, endpoint, start, bytesSent);
+                    if (!Retrier.isFailure(retryPolicy, resp.statusCode())) {
+                        succeeded(breaker);
+                    } else if (failed(breaker, attempt)) {
+                        return retryAsync(request, endpoint, bytesSent, attempt, resp.headers());
+                    }
+                    try {
+                        return CompletableFuture.completedFuture(checkStatus(resp, endpoint));
+                    } catch (RuntimeException e) {
+                        return CompletableFuture.<HttpResponse<byte[]>>failedFuture(e);
+                    }
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> retryAsync(HttpRequest request, Endpoint endpoint,
+            long bytesSent, int attempt, HttpHeaders headers) {
+        metrics.endpoint(endpoint).retried();
+        long delay = retrier.backoffMillis(attempt, headers);
+        return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> sendAsync(request, endpoint, bytesSent, attempt + 1));
+    }
+
+    /** One attempt, within the concurrency limit if there is one. */
+    private <T> HttpResponse<T> exchange(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        if (limiter == null) {
+            return httpClient.send(request, bodyHandler);
+        }
+        limiter.acquire();
+        try {
+            return httpClient.send(request, bodyHandler);
+        } finally {
+            limiter.release();
+        }
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> exchangeAsync(HttpRequest request) {
+        if (limiter == null) {
+            return httpClient.sendAsync(request, bytesBodyHandler);
+        }
+        return limiter.acquireAsync()
+                .thenCompose(granted -> httpClient.sendAsync(request, bytesBodyHandler))
+                .whenComplete((resp, error) -> limiter.release());
+    }
+
+    private void acquire(CircuitBreaker breaker, Endpoint endpoint) {
+        if (breaker != null && !breaker.tryAcquire()) {
+            metrics.endpoint(endpoint).shortCircuited();
+            throw new CircuitOpenException("Circuit breaker of " + endpoint.name().toLowerCase(Locale.ROOT)
+                    + " is open");
+        }
+    }
+
+    private void succeeded(CircuitBreaker breaker) {
+        if (breaker != null) {
+            breaker.onSuccess();
+        }
+        if (retrier != null) {
+            retrier.onSuccess();
+        }
+    }
+
+    /** Records a failed attempt and tells whether it should be retried. */
+    private boolean failed(CircuitBreaker breaker, int attempt) {
+        if (breaker != null) {
+            breaker.onFailure();
+        }
+        return retrier != null && retrier.onFailure(attempt);
+    }
+
+    private void retry(Endpoint endpoint, int attempt, HttpHeaders headers) throws InterruptedException {
+        metrics.endpoint(endpoint).retried();
+        Thread.sleep(retrier.backoffMillis(attempt, headers));
+    }
+
+    /** Streamed bodies are counted once they have been read. */
+    private <T> HttpResponse<T> record(HttpResponse<T> resp, Endpoint endpoint, long start, long bytesSent) {
+        metrics.request(endpoint, resp.statusCode(), System.nanoTime() - start, bytesSent);
+        if (resp.body() instanceof byte[] body) {
+            metrics.received(endpoint, body.length);
         }
         return resp;
     }
+
+    /** Short responses are received in full and decompressed in memory. */
+    private HttpResponse.BodySubscriber<byte[]> decodedBytes(HttpResponse.ResponseInfo info) {
+        ContentCoding coding = coding(info.headers());
+        if (coding == null) {
+            return HttpResponse.BodySubscribers.ofByteArray();
+        }
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), bytes -> {
+            try (InputStream in = coding.decompress(new ByteArrayInputStream(bytes))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /** Count in the body of a publish or commit response, in whichever format the service answered with. */
+    private int count(HttpResponse<byte[]> resp) {
+        try {
+            return responseCodec(resp.headers(), json).mapper().readValue(resp.body(), Integer.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Endpoints endpoints(String org, String topic, String subscription) {
+        return endpoints.computeIfAbsent(new Endpoints.Key(org, topic, subscription),
+                key -> new Endpoints(baseUrl, org, topic, subscription));
+    }
+
+    private CodecContext context(EventCodec codec) {
+        return codecs.computeIfAbsent(codec, CodecContext::new);
+    }
+
+    /**
+     * Codec for a response body: {@code requested} when the body is in its
+     * content type or the type is missing or unknown, otherwise the built-in
+     * codec for the type.
+     */
+    private CodecContext responseCodec(HttpHeaders headers, CodecContext requested) {
+        String type = headers.firstValue("Content-Type").orElse(null);
+        if (type == null) {
+            return requested;
+        }
+        int params = type.indexOf(';');
+        String contentType = (params < 0 ? type : type.substring(0, params)).trim();
+        if (contentType.equalsIgnoreCase(requested.contentType())) {
+            return requested;
+        }
+        for (EventCodec codec : BUILT_IN_CODECS) {
+            if (contentType.equalsIgnoreCase(codec.contentType())) {
+                return context(codec);
+            }
+        }
+        return requested;
+    }
+
+    /** Streamed responses are decompressed by the thread that reads them. */
+    private InputStream decode(HttpHeaders headers, InputStream body) throws IOException {
+        ContentCoding coding = coding(headers);
+        return coding == null ? body : coding.decompress(body);
+    }
+
+    private ContentCoding coding(HttpHeaders headers) {
+        String name = headers.firstValue("Content-Encoding").map(v -> v.trim().toLowerCase(Locale.ROOT)).orElse("");
+        if (name.isEmpty() || name.equals("identity")) {
+            return null;
+        }
+        ContentCoding coding = codings.get(name);
+        if (coding == null) {
+            throw new UncheckedIOException(new IOException("Unsupported Content-Encoding: " + name));
+        }
+        return coding;
+    }
+
+    /**
+     * Turns the final error response of a request, once retries are used up,
+     * into {@link EventPublishingException} for publishing and
+     * {@link EventConsumerException} for reads and commits.
+     */
+    private <T> HttpResponse<T> checkStatus(HttpResponse<T> resp, Endpoint endpoint) {
+        int status = resp.statusCode();
+        if (status < 400) {
+            return resp;
+        }
+        discard(resp);
+        if (status == 409 && endpoint == Endpoint.READ) {
+            throw new EventConflictException("Conflict while reading events");
+        }
+        String message = switch (status) {
+            case 400 -> "Error on your request:" + (resp.body() instanceof byte[] body
+                    ? new String(body, StandardCharsets.UTF_8) : "");
+            case 404 -> "Subscription, topic or organization not found";
+            case 500 -> "Internal Server Error";
+            default -> "Request failed with status code " + status;
+        };
+        if (endpoint == Endpoint.PUBLISH) {
+            throw new EventPublishingException(message, status);
+        }
+        throw new EventConsumerException(message, status);
+    }
+
+    private static void discard(HttpResponse<?> resp) {
+        if (resp.body() instanceof InputStream body) {
+            try {
+                body.close();
+            } catch (IOException e) {
+                // the connection is discarded either way
+            }
+        }
+    }
+
+    /**
+     * Options of a {@link PubSubClient}. Either pass an {@link HttpClient} to
+     * share one transport, with its connections and threads, among clients,
+     * or let the builder create one from the protocol version, connect timeout
+     * and executor set here; mixing both is rejected.
+     */
+    public static final class Builder {
+        private final String baseUrl;
+        private HttpClient httpClient;
+        private HttpClient.Version version;
+        private Duration connectTimeout;
+        private Duration requestTimeout;
+        private Executor executor;
+        private int maxConcurrentRequests;
+        private CompressionConfig compression;
+        private RetryPolicy retryPolicy;
+        private CircuitBreakerConfig circuitBreaker;
+        private ThreadMode threadMode;
+
+        private Builder(String baseUrl) {
+            this.baseUrl = Objects.requireNonNull(baseUrl, "baseUrl");
+        }
+
+        /** Sends through {@code httpClient}, which may be shared with other clients. */
+        public Builder httpClient(HttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * Prefers HTTP/2, so concurrent requests are multiplexed over one
+         * connection per service host; the client falls back to HTTP/1.1 when
+         * the service does not support it.
+         */
+        public Builder http2(boolean http2) {
+            this.version = http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+            return this;
+        }
+
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = positive(connectTimeout);
+            return this;
+        }
+
+        /** Time to wait for the response headers of each attempt before it fails with a timeout. */
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = positive(requestTimeout);
+            return this;
+        }
+
+        /** Runs the HttpClient's tasks, such as completing asynchronous requests, on {@code executor}. */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Caps the requests the client has outstanding at once, further ones
+         * wait for a slot in arrival order. With HTTP/1.1 every outstanding
+         * request holds a connection, so this also caps the connections the
+         * client opens; a streamed read gives its slot back once its
+         * response headers arrived. {@code 0} sets no limit.
+         */
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            if (maxConcurrentRequests < 0) {
+                throw new IllegalArgumentException("maxConcurrentRequests must not be negative");
+            }
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /** See {@link PubSubClient#PubSubClient(String, CompressionConfig)}. */
+        public Builder compression(CompressionConfig compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /** See {@link PubSubClient#PubSubClient(String, CompressionConfig, RetryPolicy, CircuitBreakerConfig)}. */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /** See {@link PubSubClient#PubSubClient(String, CompressionConfig, RetryPolicy, CircuitBreakerConfig)}. */
+        public Builder circuitBreaker(CircuitBreakerConfig circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /** Runs the HttpClient's tasks on {@code threadMode} threads, see {@link ThreadMode}. */
+        public Builder threadMode(ThreadMode threadMode) {
+            this.threadMode = threadMode;
+            return this;
+        }
+
+        public PubSubClient build() {
+            boolean virtual = threadMode == ThreadMode.VIRTUAL;
+            if (httpClient != null && (version != null || connectTimeout != null || executor != null || virtual)) {
+                throw new IllegalStateException("Transport options do not apply to a shared HttpClient");
+            }
+            if (executor != null && virtual) {
+                throw new IllegalStateException("Either an executor or virtual threads can be set");
+            }
+            return new PubSubClient(this);
+        }
+
+        private HttpClient httpClient() {
+            if (httpClient != null) {
+                return httpClient;
+            }
+            HttpClient.Builder builder = HttpClient.newBuilder();
+            if (version != null) {
+                builder.version(version);
+            }
+            if (connectTimeout != null) {
+                builder.connectTimeout(connectTimeout);
+            }
+            Executor httpExecutor = executor != null ? executor : Threads.perTaskExecutor(threadMode, "pubsub-http");
+            if (httpExecutor != null) {
+                builder.executor(httpExecutor);
+            }
+            return builder.build();
+        }
+
+        private static Duration positive(Duration duration) {
+            if (duration != null && (duration.isNegative() || duration.isZero())) {
+                throw new IllegalArgumentException("Timeouts must be positive");
+            }
+            return duration;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
 }
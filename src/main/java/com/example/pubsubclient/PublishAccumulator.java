@@ -0,0 +1,248 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import com.example.pubsubclient.exception.EventPublishingException;
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Buffers single events of one topic and publishes them together once the
+ * {@link BatchingConfig} count, size or linger threshold is reached.
+ *
+ * <p>Every event is serialized once, into a token buffer, when it is added.
+ * Its size is measured by encoding those tokens, and the request body is
+ * written from them, so the payload itself is never serialized twice. The
+ * size of a body still includes the array framing the events do not; a body
+ * that comes out larger than the limit is split in half and encoded again.
+ */
+class PublishAccumulator<T> implements AutoCloseable {
+
+    private final BatchingConfig batching;
+    private final PubSubClient client;
+    private final EventCodec codec;
+    private final BiFunction<List<EventPublishRequest<T>>, PooledBuffer, CompletableFuture<Integer>> sender;
+    private final BiFunction<Exception, List<EventPublishRequest<T>>, Integer> encodingFailed;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Threads.daemon("pubsub-publish-linger"));
+    private final Object lock = new Object();
+
+    private List<Pending<T>> buffer = new ArrayList<>();
+    private long bufferedBytes;
+    private ScheduledFuture<?> lingerFlush;
+    private boolean closed;
+
+    /**
+     * {@code sender} publishes a body from {@link PubSubClient#encode} and
+     * releases it; {@code encodingFailed} reports events that could not be
+     * serialized and returns the number of events to count as published.
+     */
+    PublishAccumulator(
+            BatchingConfig batching,
+            PubSubClient client,
+            EventCodec codec,
+            BiFunction<List<EventPublishRequest<T>>, PooledBuffer, CompletableFuture<Integer>> sender,
+            BiFunction<Exception, List<EventPublishRequest<T>>, Integer> encodingFailed) {
+        this.batching = batching;
+        this.client = client;
+        this.codec = codec;
+        this.sender = sender;
+        this.encodingFailed = encodingFailed;
+    }
+
+    /**
+     * Buffers the event. The returned future completes with 1 once the request
+     * carrying it was accepted, or 0 when it was not.
+     *
+     * @throws IllegalStateException if the accumulator was closed
+     */
+    CompletableFuture<Integer> add(EventPublishRequest<T> request) {
+        Pending<T> pending;
+        try {
+            pending = pending(request, new CompletableFuture<>());
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(
+                    encodingFailed.apply(new EventPublishingException(e), List.of(request)) > 0 ? 1 : 0);
+        }
+        List<Pending<T>> full = null;
+        List<Pending<T>> ready = null;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Publisher is closed");
+            }
+            if (!buffer.isEmpty() && bufferedBytes + pending.size() > batching.maxBytes()) {
+                full = drain();
+            }
+            buffer.add(pending);
+            bufferedBytes += pending.size();
+            if (buffer.size() >= batching.maxEvents() || bufferedBytes >= batching.maxBytes()) {
+                ready = drain();
+            } else if (lingerFlush == null) {
+                lingerFlush = scheduler.schedule(this::flush, batching.lingerMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        if (ready != null) {
+            send(ready);
+        }
+        return pending.future();
+    }
+
+    /**
+     * Publishes an explicit batch right away, split into chunks that respect
+     * the configured limits. Completes with the total number of published events.
+     *
+     * @throws IllegalStateException if the accumulator was closed
+     */
+    CompletableFuture<Integer> publishAll(List<EventPublishRequest<T>> requests) {
+        checkOpen();
+        List<Pending<T>> pending = new ArrayList<>(requests.size());
+        int unencoded = 0;
+        for (EventPublishRequest<T> request : requests) {
+            try {
+                pending.add(pending(request, null));
+            } catch (IOException e) {
+                unencoded += encodingFailed.apply(new EventPublishingException(e), List.of(request));
+            }
+        }
+        CompletableFuture<Integer> total = CompletableFuture.completedFuture(unencoded);
+        for (List<Pending<T>> chunk : chunks(pending)) {
+            total = total.thenCombine(publish(chunk), Integer::sum);
+        }
+        return total;
+    }
+
+    /** Publishes everything currently buffered. */
+    void flush() {
+        List<Pending<T>> ready;
+        synchronized (lock) {
+            ready = drain();
+        }
+        send(ready);
+    }
+
+    /** Publishes what is buffered; events added afterwards are rejected. */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+    }
+
+    private void checkOpen() {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Publisher is closed");
+            }
+        }
+    }
+
+    /** Serializes the event into tokens and measures their encoded size. */
+    private Pending<T> pending(EventPublishRequest<T> request, CompletableFuture<Integer> future) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(codec.mapper(), false);
+        codec.mapper().writeValue(tokens, request);
+        PooledBuffer encoded = client.serialize(tokens, codec);
+        long size = encoded.size();
+        client.release(encoded);
+        return new Pending<>(request, tokens, size, future);
+    }
+
+    private List<Pending<T>> drain() {
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+        List<Pending<T>> drained = buffer;
+        buffer = new ArrayList<>();
+        bufferedBytes = 0;
+        return drained;
+    }
+
+    private void send(List<Pending<T>> pending) {
+        for (List<Pending<T>> chunk : chunks(pending)) {
+            publish(chunk);
+        }
+    }
+
+    /**
+     * Encodes and sends one chunk, completing the futures of its events with
+     * the outcome of the request that carried them.
+     */
+    private CompletableFuture<Integer> publish(List<Pending<T>> chunk) {
+        List<EventPublishRequest<T>> requests = new ArrayList<>(chunk.size());
+        List<TokenBuffer> tokens = new ArrayList<>(chunk.size());
+        for (Pending<T> p : chunk) {
+            requests.add(p.request());
+            tokens.add(p.tokens());
+        }
+        PooledBuffer body;
+        try {
+            body = client.serialize(tokens, codec);
+        } catch (IOException e) {
+            return completed(chunk, encodingFailed.apply(new EventPublishingException(e), requests));
+        }
+        if (body.size() > batching.maxBytes() && chunk.size() > 1) {
+            // the framing tipped it over, the halves are encoded again
+            client.release(body);
+            int half = chunk.size() / 2;
+            return publish(chunk.subList(0, half)).thenCombine(publish(chunk.subList(half, chunk.size())),
+                    Integer::sum);
+        }
+        try {
+            body = client.compress(body);
+        } catch (IOException e) {
+            return completed(chunk, encodingFailed.apply(new EventPublishingException(e), requests));
+        }
+        return sender.apply(requests, body).whenComplete((published, error) ->
+                complete(chunk, error == null && published > 0 ? 1 : 0));
+    }
+
+    private static <T> CompletableFuture<Integer> completed(List<Pending<T>> chunk, int published) {
+        complete(chunk, published > 0 ? 1 : 0);
+        return CompletableFuture.completedFuture(published);
+    }
+
+    private static <T> void complete(List<Pending<T>> chunk, int result) {
+        for (Pending<T> p : chunk) {
+            if (p.future() != null) {
+                p.future().complete(result);
+            }
+        }
+    }
+
+    private List<List<Pending<T>>> chunks(List<Pending<T>> pending) {
+        List<List<Pending<T>>> chunks = new ArrayList<>();
+        int from = 0;
+        while (from < pending.size()) {
+            int to = from;
+            long bytes = 0;
+            while (to < pending.size()
+                    && to - from < batching.maxEvents()
+                    && (to == from || bytes + pending.get(to).size() <= batching.maxBytes())) {
+                bytes += pending.get(to).size();
+                to++;
+            }
+            chunks.add(pending.subList(from, to));
+            from = to;
+        }
+        return chunks;
+    }
+
+    private record Pending<T>(
+            EventPublishRequest<T> request,
+            TokenBuffer tokens,
+            long size,
+            CompletableFuture<Integer> future) {}
+}
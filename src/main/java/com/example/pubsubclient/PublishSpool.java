@@ -0,0 +1,397 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only spool of event payloads in memory-mapped segment files, so an
+ * outage costs disk space rather than heap. A daemon thread replays the
+ * oldest events in batches and deletes every segment it has fully replayed.
+ * A batch the service rejects for good is replayed one event at a time, and
+ * the events rejected on their own are dropped and reported.
+ *
+ * <p>A segment starts with the position of its first record that was not
+ * replayed yet, followed by records of {@code length, CRC32C, payload}. The
+ * length is written last and a zero length ends the segment, so a record
+ * torn by a crash fails its checksum and the spool resumes before it. Pages
+ * are left to the operating system to write back: spooled events survive a
+ * crash of the process, and are forced to disk when a segment is full and on
+ * close.
+ */
+class PublishSpool implements AutoCloseable {
+
+    private static final int HEADER_BYTES = Long.BYTES;
+    private static final int RECORD_OVERHEAD = 2 * Integer.BYTES;
+    private static final String SUFFIX = ".spool";
+
+    private final SpoolConfig config;
+    private final PubSubClient client;
+    private final EventPublisherConfig target;
+    private final ObjectMapper mapper;
+    private final PublishingErrorHandler<?> errorHandler;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final FileChannel lockChannel;
+    private final FileLock directoryLock;
+    private final Thread replayThread;
+    private long nextSequence;
+    private long pending;
+    /** Events still to be replayed one at a time after a rejected batch, used by the replay thread only. */
+    private int isolating;
+    private volatile boolean closed;
+
+    PublishSpool(SpoolConfig config, PubSubClient client, EventPublisherConfig target,
+            PublishingErrorHandler<?> errorHandler) {
+        this.config = config;
+        this.client = client;
+        this.target = target;
+        this.mapper = target.codec().mapper();
+        this.errorHandler = errorHandler;
+        try {
+            Files.createDirectories(config.directory());
+            lockChannel = FileChannel.open(config.directory().resolve("spool.lock"), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            directoryLock = lockChannel.tryLock();
+            if (directoryLock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("Spool directory is in use: " + config.directory());
+            }
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        replayThread = new Thread(this::replayLoop, "pubsub-spool-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    /** Number of events waiting for replay; while there are any, new events go behind them. */
+    long pending() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the events, all or none. Returns {@code false} when the spool
+     * is full or an event does not fit into a segment.
+     */
+    <T> boolean append(List<EventPublishRequest<T>> events) {
+        List<byte[]> payloads = new ArrayList<>(events.size());
+        try {
+            for (EventPublishRequest<T> event : events) {
+                payloads.add(mapper.writeValueAsBytes(event.data()));
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (closed || !reserve(payloads)) {
+                return false;
+            }
+            CRC32C crc = new CRC32C();
+            for (byte[] payload : payloads) {
+                Segment tail = segments.peekLast();
+                if (tail.remaining() < RECORD_OVERHEAD + payload.length) {
+                    tail = roll();
+                }
+                tail.append(payload, crc);
+            }
+            pending += payloads.size();
+            appended.signalAll();
+            return true;
+        } catch (IOException e) {
+            report(e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        replayThread.interrupt();
+        try {
+            replayThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+            directoryLock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            report(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Checks that the payloads fit into the free segments, counting the segments still to be opened. */
+    private boolean reserve(List<byte[]> payloads) {
+        int capacity = config.segmentBytes() - HEADER_BYTES;
+        int free = segments.isEmpty() ? 0 : segments.peekLast().remaining();
+        int spareSegments = config.maxSegments() - segments.size();
+        for (byte[] payload : payloads) {
+            int needed = RECORD_OVERHEAD + payload.length;
+            if (needed > capacity) {
+                return false;
+            }
+            if (needed > free) {
+                if (spareSegments-- == 0) {
+                    return false;
+                }
+                free = capacity;
+            }
+            free -= needed;
+        }
+        return true;
+    }
+
+    private void replayLoop() {
+        while (!closed) {
+            try {
+                Batch batch = awaitBatch(isolating > 0 ? 1 : config.replayBatchSize());
+                if (batch == null) {
+                    continue;
+                }
+                List<EventPublishRequest<JsonNode>> events = new ArrayList<>(batch.payloads().size());
+                for (byte[] payload : batch.payloads()) {
+                    events.add(new EventPublishRequest<>(mapper.readTree(payload)));
+                }
+                try {
+                    client.publishEvents(target.org(), target.topic(), events, target.codec());
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    if (client.isRetryable(e)) {
+                        report(e);
+                        Thread.sleep(config.retryIntervalMillis());
+                        continue;
+                    }
+                    if (events.size() > 1) {
+                        // find the events the service rejects without dropping the rest of the batch
+                        isolating = events.size();
+                        continue;
+                    }
+                    errorHandler.onSpooledEventsRejected(e, events);
+                }
+                replayed(batch);
+                if (isolating > 0) {
+                    isolating--;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                report(e);
+            }
+        }
+    }
+
+    /** Oldest records, at most one segment and {@code maxEvents}, or {@code null} if woken without any. */
+    private Batch awaitBatch(int maxEvents) throws InterruptedException {
+        lock.lock();
+        try {
+            Segment head = segments.peekFirst();
+            while (head != null && head.readPos >= head.writePos && head != segments.peekLast()) {
+                // fully replayed before a restart
+                discard(segments.pollFirst());
+                head = segments.peekFirst();
+            }
+            if (head == null || head.readPos >= head.writePos) {
+                appended.await(config.retryIntervalMillis() + 100, TimeUnit.MILLISECONDS);
+                return null;
+            }
+            List<byte[]> payloads = new ArrayList<>();
+            int pos = head.readPos;
+            while (pos < head.writePos && payloads.size() < maxEvents) {
+                int length = head.buffer.getInt(pos);
+                byte[] payload = new byte[length];
+                head.buffer.get(pos + RECORD_OVERHEAD, payload);
+                payloads.add(payload);
+                pos += RECORD_OVERHEAD + length;
+            }
+            return new Batch(head, payloads, pos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void replayed(Batch batch) {
+        lock.lock();
+        try {
+            Segment segment = batch.segment();
+            segment.readPos = batch.end();
+            pending -= batch.payloads().size();
+            segment.buffer.putLong(0, segment.readPos);
+            if (segment.readPos >= segment.writePos && segment != segments.peekLast()) {
+                segments.remove(segment);
+                discard(segment);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Segment roll() throws IOException {
+        Segment tail = segments.peekLast();
+        if (tail != null) {
+            tail.buffer.force();
+        }
+        Segment segment = open(config.directory().resolve(String.format("%020d%s", nextSequence++, SUFFIX)));
+        segment.buffer.putLong(0, HEADER_BYTES);
+        segment.readPos = HEADER_BYTES;
+        segment.writePos = HEADER_BYTES;
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(config.directory())) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence;
+            try {
+                sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                // not one of ours, leave it alone
+                report(new IOException("Skipping spool file with unexpected name: " + file));
+                continue;
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (Files.size(file) != config.segmentBytes()) {
+                // written with another segment size, keep it for inspection rather than guess
+                report(new IOException("Skipping spool segment of unexpected size: " + file));
+                continue;
+            }
+            Segment segment = open(file);
+            long readPos = segment.buffer.getLong(0);
+            segment.readPos = readPos < HEADER_BYTES || readPos > config.segmentBytes()
+                    ? HEADER_BYTES : (int) readPos;
+            segment.writePos = segment.scan();
+            segment.readPos = Math.min(segment.readPos, segment.writePos);
+            pending += segment.count(segment.readPos);
+            segments.addLast(segment);
+        }
+        if (segments.isEmpty()) {
+            roll();
+        }
+    }
+
+    private Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, config.segmentBytes()));
+        }
+    }
+
+    private void discard(Segment segment) {
+        try {
+            // the mapping itself is released once the buffer is collected
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            report(e);
+        }
+    }
+
+    /** Failures that leave the spooled events in place. */
+    private void report(Exception error) {
+        errorHandler.onError(error, List.of());
+    }
+
+    private record Batch(Segment segment, List<byte[]> payloads, int end) {
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int readPos;
+        private int writePos;
+
+        Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePos;
+        }
+
+        void append(byte[] payload, CRC32C crc) {
+            crc.reset();
+            crc.update(payload);
+            buffer.putInt(writePos + Integer.BYTES, (int) crc.getValue());
+            buffer.put(writePos + RECORD_OVERHEAD, payload);
+            buffer.putInt(writePos, payload.length);
+            writePos += RECORD_OVERHEAD + payload.length;
+        }
+
+        int count(int from) {
+            int records = 0;
+            for (int pos = from; pos < writePos; pos += RECORD_OVERHEAD + buffer.getInt(pos)) {
+                records++;
+            }
+            return records;
+        }
+
+        /** End of the intact records, stopping at the end marker or the first torn record. */
+        int scan() {
+            CRC32C crc = new CRC32C();
+            int pos = HEADER_BYTES;
+            while (buffer.capacity() - pos >= RECORD_OVERHEAD) {
+                int length = buffer.getInt(pos);
+                if (length <= 0 || length > buffer.capacity() - pos - RECORD_OVERHEAD) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(pos + RECORD_OVERHEAD, length));
+                if ((int) crc.getValue() != buffer.getInt(pos + Integer.BYTES)) {
+                    break;
+                }
+                pos += RECORD_OVERHEAD + length;
+            }
+            // clear whatever a torn write left behind so new records are not mistaken for it
+            for (int i = pos; i < Math.min(buffer.capacity(), pos + RECORD_OVERHEAD); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            return pos;
+        }
+    }
+}
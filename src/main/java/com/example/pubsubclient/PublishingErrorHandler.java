@@ -3,8 +3,19 @@ package com.example.pubsubclient;
 import java.util.List;
 
 import com.example.pubsubclient.model.EventPublishRequest;
+import com.fasterxml.jackson.databind.JsonNode;
 
 @FunctionalInterface
 public interface PublishingErrorHandler<T> {
     void onError(Exception e, List<EventPublishRequest<T>> eventRequests);
+
+    /**
+     * The service rejected events replayed from the {@link SpoolConfig spool}
+     * for good, and they were dropped from it. The spool keeps payloads
+     * without their type, so they are handed over as the trees that were
+     * sent. Reports to {@link #onError} without the events by default.
+     */
+    default void onSpooledEventsRejected(Exception e, List<EventPublishRequest<JsonNode>> eventRequests) {
+        onError(e, List.of());
+    }
 }
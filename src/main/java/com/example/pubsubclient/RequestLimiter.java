@@ -0,0 +1,83 @@
+package com.example.pubsubclient;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the requests a client has outstanding. Waiters are granted permits in
+ * arrival order; asynchronous callers wait on a future instead of a thread.
+ */
+final class RequestLimiter {
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    private final int maxRequests;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private int inUse;
+
+    RequestLimiter(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    /** Future completing once a permit is held, every permit must be {@link #release released}. */
+    CompletableFuture<Void> acquireAsync() {
+        lock.lock();
+        try {
+            if (inUse < maxRequests && waiting.isEmpty()) {
+                inUse++;
+                return GRANTED;
+            }
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            waiting.add(permit);
+            return permit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void acquire() throws InterruptedException {
+        CompletableFuture<Void> permit = acquireAsync();
+        try {
+            permit.get();
+        } catch (InterruptedException e) {
+            if (!permit.cancel(false)) {
+                release();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void release() {
+        CompletableFuture<Void> next;
+        lock.lock();
+        try {
+            do {
+                next = waiting.poll();
+            } while (next != null && next.isCancelled());
+            if (next == null) {
+                inUse--;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // the permit passes straight to the next waiter
+        if (!next.complete(null)) {
+            release();
+        }
+    }
+
+    int inUse() {
+        lock.lock();
+        try {
+            return inUse;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.pubsubclient;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Applies a {@link RetryPolicy} and keeps its retry budget, in thousandths of a token. */
+final class Retrier {
+
+    private static final long TOKEN = 1000;
+
+    private final RetryPolicy policy;
+    private final long maxTokens;
+    private final long tokensPerSuccess;
+    private final AtomicLong tokens;
+
+    Retrier(RetryPolicy policy) {
+        this.policy = policy;
+        this.maxTokens = policy.budgetTokens() * TOKEN;
+        this.tokensPerSuccess = Math.round(policy.budgetTokenRatio() * TOKEN);
+        this.tokens = new AtomicLong(maxTokens);
+    }
+
+    /** Whether {@code statusCode} counts as a failure, for retries and for circuit breakers. */
+    static boolean isFailure(RetryPolicy policy, int statusCode) {
+        if (policy != null) {
+            return policy.retryableStatuses().contains(statusCode);
+        }
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+
+    void onSuccess() {
+        if (tokensPerSuccess > 0) {
+            tokens.accumulateAndGet(tokensPerSuccess, (current, add) -> Math.min(maxTokens, current + add));
+        }
+    }
+
+    /** Takes a token for the failed {@code attempt} and tells whether another one may be made. */
+    boolean onFailure(int attempt) {
+        long left = tokens.accumulateAndGet(TOKEN, (current, take) -> Math.max(0, current - take));
+        return attempt < policy.maxAttempts() && left > maxTokens / 2;
+    }
+
+    /** Delay before the attempt after {@code attempt}, honouring a {@code Retry-After} of {@code headers}. */
+    long backoffMillis(int attempt, HttpHeaders headers) {
+        long retryAfter = headers == null ? -1 : retryAfterMillis(headers);
+        if (retryAfter >= 0) {
+            return Math.min(retryAfter, policy.maxBackoffMillis());
+        }
+        double delay = Math.min(policy.maxBackoffMillis(),
+                policy.initialBackoffMillis() * Math.pow(policy.multiplier(), attempt - 1));
+        double jitter = delay * policy.jitter();
+        return Math.round(delay - jitter + ThreadLocalRandom.current().nextDouble() * jitter);
+    }
+
+    /** Seconds or an HTTP date, -1 when absent or malformed. */
+    static long retryAfterMillis(HttpHeaders headers) {
+        String value = headers.firstValue("Retry-After").map(String::trim).orElse(null);
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // not delta-seconds, try an HTTP date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.pubsubclient;
+
+import java.util.Set;
+
+/**
+ * Retries of requests that failed in transport or with a retryable status.
+ * Attempt {@code n} waits {@code initialBackoffMillis * multiplier^(n-1)},
+ * capped at {@code maxBackoffMillis}, of which the {@code jitter} fraction is
+ * randomised; a {@code Retry-After} header of the response takes precedence
+ * within the same cap.
+ *
+ * <p>Retries draw from a budget shared by all requests of the client: it
+ * holds {@code budgetTokens} tokens, every failed attempt takes one, every
+ * success returns {@code budgetTokenRatio}, and retries stop while less than
+ * half of the tokens are left. An unhealthy service therefore gets little
+ * more than one attempt per request instead of a retry storm.
+ *
+ * <p>Publishes are retried like any other request, so a publish whose
+ * response was lost may be stored twice.
+ *
+ * @param maxAttempts          attempts per request including the first
+ * @param initialBackoffMillis delay before the first retry
+ * @param maxBackoffMillis     upper bound for any delay
+ * @param multiplier           growth of the delay per attempt
+ * @param jitter               fraction of the delay, between 0 and 1, that is randomised
+ * @param retryableStatuses    status codes that are retried and count as failures
+ * @param budgetTokens         size of the retry budget
+ * @param budgetTokenRatio     tokens returned per successful attempt
+ */
+public record RetryPolicy(
+        int maxAttempts,
+        long initialBackoffMillis,
+        long maxBackoffMillis,
+        double multiplier,
+        double jitter,
+        Set<Integer> retryableStatuses,
+        int budgetTokens,
+        double budgetTokenRatio
+) {
+    /** Timeouts, throttling and server errors that are worth another attempt. */
+    public static final Set<Integer> DEFAULT_RETRYABLE_STATUSES = Set.of(408, 429, 500, 502, 503, 504);
+
+    public RetryPolicy {
+        if (maxAttempts <= 0 || initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis
+                || multiplier < 1 || jitter < 0 || jitter > 1 || budgetTokens <= 0 || budgetTokenRatio < 0) {
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+        retryableStatuses = retryableStatuses == null ? DEFAULT_RETRYABLE_STATUSES : Set.copyOf(retryableStatuses);
+    }
+
+    /** Doubling, fully jittered delays on the default statuses, with a budget of 10 tokens refilled by 0.1. */
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        this(maxAttempts, initialBackoffMillis, maxBackoffMillis, 2.0, 1.0, DEFAULT_RETRYABLE_STATUSES, 10, 0.1);
+    }
+}
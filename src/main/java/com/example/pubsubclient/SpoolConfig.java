@@ -0,0 +1,38 @@
+package com.example.pubsubclient;
+
+import java.nio.file.Path;
+
+/**
+ * Write-ahead spool of an {@link EventPublisher}. Events that could not be
+ * published for the time being are appended to memory-mapped segment files in
+ * {@code directory} and replayed in the background once the service accepts
+ * them again. One publisher owns a directory at a time.
+ *
+ * @param directory           where the segment files are kept
+ * @param segmentBytes        size of one segment file
+ * @param maxSegments         segments kept at most, bounding the spool to
+ *                            {@code segmentBytes * maxSegments} bytes
+ * @param replayBatchSize     maximum number of events per replayed request
+ * @param retryIntervalMillis pause after a failed replay
+ */
+public record SpoolConfig(
+        Path directory,
+        int segmentBytes,
+        int maxSegments,
+        int replayBatchSize,
+        long retryIntervalMillis
+) {
+    public SpoolConfig {
+        if (directory == null) {
+            throw new IllegalArgumentException("Spool directory is required");
+        }
+        if (segmentBytes < 4096 || maxSegments <= 0 || replayBatchSize <= 0 || retryIntervalMillis < 0) {
+            throw new IllegalArgumentException("Spool limits must be positive and segments at least 4 KiB");
+        }
+    }
+
+    /** 16 segments of 64 MiB, replayed 500 events at a time and retried every second. */
+    public SpoolConfig(Path directory) {
+        this(directory, 64 * 1024 * 1024, 16, 500, 1_000L);
+    }
+}
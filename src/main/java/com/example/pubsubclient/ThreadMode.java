@@ -0,0 +1,19 @@
+package com.example.pubsubclient;
+
+/**
+ * Kind of threads the client runs blocking work on. Virtual threads need a
+ * Java 21 runtime; the library itself still targets Java 17 and looks them up
+ * when a {@code VIRTUAL} component is created, failing with an
+ * {@link UnsupportedOperationException} on older runtimes.
+ */
+public enum ThreadMode {
+    /** Regular platform threads, the default. */
+    PLATFORM,
+    /** One cheap virtual thread per task, so blocking handlers need no pool tuning. */
+    VIRTUAL;
+
+    /** Whether the running JVM offers virtual threads. */
+    public static boolean virtualThreadsSupported() {
+        return Threads.VIRTUAL_BUILDER != null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.pubsubclient;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for a {@link ThreadMode}, resolving virtual threads
+ * reflectively, and for the client's own background threads.
+ */
+final class Threads {
+
+    /** {@code Thread.ofVirtual()}, {@code null} when the runtime has no virtual threads. */
+    static final Method VIRTUAL_BUILDER = virtualBuilder();
+
+    private Threads() {
+    }
+
+    /**
+     * Factory for {@code mode}; platform threads come from
+     * {@link Executors#defaultThreadFactory()}, virtual ones are named
+     * {@code name-1}, {@code name-2} and so on.
+     */
+    static ThreadFactory factory(ThreadMode mode, String name) {
+        if (mode != ThreadMode.VIRTUAL) {
+            return Executors.defaultThreadFactory();
+        }
+        if (VIRTUAL_BUILDER == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+        try {
+            Object builder = VIRTUAL_BUILDER.invoke(null);
+            Class<?> type = Class.forName("java.lang.Thread$Builder");
+            builder = type.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            return (ThreadFactory) type.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads are not available", e);
+        }
+    }
+
+    /**
+     * Factory for the client's background threads, daemons named
+     * {@code name-1}, {@code name-2} and so on so they never keep the JVM alive.
+     */
+    static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** Executor starting a new virtual thread per task, {@code null} for platform threads. */
+    static Executor perTaskExecutor(ThreadMode mode, String name) {
+        if (mode != ThreadMode.VIRTUAL) {
+            return null;
+        }
+        ThreadFactory factory = factory(mode, name);
+        return task -> factory.newThread(task).start();
+    }
+
+    private static Method virtualBuilder() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            // preview builds of Java 19 and 20 have the method but refuse to run it
+            ofVirtual.invoke(null);
+            return ofVirtual;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.pubsubclient;
+
+import com.example.pubsubclient.model.EventResponse;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Handler for events whose payload is decoded into {@code T}, see
+ * {@link EventConsumerConfig#withPayloadType(Class)}.
+ */
+@FunctionalInterface
+public interface TypedEventsHandler<T> {
+    void handle(List<EventResponse<T>> events, Function<List<UUID>, Integer> commitFn) throws Exception;
+}
@@ -0,0 +1,132 @@
+package com.example.pubsubclient;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.UUID;
+
+/**
+ * Bounded set of recently seen UUIDs without per-entry objects. Entries live
+ * in a ring, oldest first, of three longs each: the two halves of the id and
+ * the time it was added. An open-addressed table with linear probing maps id
+ * hashes to ring positions, kept at most half full, and slots are freed by
+ * shifting later entries of the probe sequence back instead of leaving
+ * tombstones. Entries leave the ring when it is full or once they expired.
+ */
+final class UuidCache {
+
+    private static final int ENTRY_LONGS = 3;
+
+    private final int maxIds;
+    private final long ttlMillis;
+    /** {@code ENTRY_LONGS} longs per entry: most and least significant bits, time added. */
+    private final LongBuffer ring;
+    /** Ring position plus one per slot, 0 marking a free slot. */
+    private final IntBuffer table;
+    private final int mask;
+    private int head;
+    private int size;
+
+    UuidCache(DedupConfig config) {
+        this.maxIds = config.maxIds();
+        this.ttlMillis = config.ttlMillis();
+        int capacity = Integer.highestOneBit(Math.max(2, maxIds) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        if (config.offHeap()) {
+            this.ring = ByteBuffer.allocateDirect(maxIds * ENTRY_LONGS * Long.BYTES).asLongBuffer();
+            this.table = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        } else {
+            this.ring = LongBuffer.allocate(maxIds * ENTRY_LONGS);
+            this.table = IntBuffer.allocate(capacity);
+        }
+    }
+
+    /** Whether {@code id} was added and has not expired at {@code nowMillis}. */
+    synchronized boolean contains(UUID id, long nowMillis) {
+        int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        return slot >= 0 && !expired(table.get(slot) - 1, nowMillis);
+    }
+
+    /** Adds {@code id} unless present, dropping expired entries and, when full, the oldest one. */
+    synchronized void add(UUID id, long nowMillis) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        while (size > 0 && expired(head, nowMillis)) {
+            evictHead();
+        }
+        if (find(msb, lsb) >= 0) {
+            return;
+        }
+        if (size == maxIds) {
+            evictHead();
+        }
+        int entry = (head + size) % maxIds;
+        ring.put(entry * ENTRY_LONGS, msb);
+        ring.put(entry * ENTRY_LONGS + 1, lsb);
+        ring.put(entry * ENTRY_LONGS + 2, nowMillis);
+        int slot = hash(msb, lsb) & mask;
+        while (table.get(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.put(slot, entry + 1);
+        size++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private boolean expired(int entry, long nowMillis) {
+        return nowMillis - ring.get(entry * ENTRY_LONGS + 2) >= ttlMillis;
+    }
+
+    /** Table slot of the id, -1 if absent. */
+    private int find(long msb, long lsb) {
+        int slot = hash(msb, lsb) & mask;
+        int value;
+        while ((value = table.get(slot)) != 0) {
+            int entry = value - 1;
+            if (ring.get(entry * ENTRY_LONGS) == msb && ring.get(entry * ENTRY_LONGS + 1) == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void evictHead() {
+        remove(find(ring.get(head * ENTRY_LONGS), ring.get(head * ENTRY_LONGS + 1)));
+        head = (head + 1) % maxIds;
+        size--;
+    }
+
+    /** Frees {@code slot}, moving back entries that would otherwise no longer be found. */
+    private void remove(int slot) {
+        int free = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int value = table.get(next);
+            if (value == 0) {
+                break;
+            }
+            int entry = value - 1;
+            int home = hash(ring.get(entry * ENTRY_LONGS), ring.get(entry * ENTRY_LONGS + 1)) & mask;
+            // the entry may stay if its home lies cyclically after the free slot, up to its own slot
+            boolean stays = free <= next ? free < home && home <= next : free < home || home <= next;
+            if (!stays) {
+                table.put(free, value);
+                free = next;
+            }
+        }
+        table.put(free, 0);
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
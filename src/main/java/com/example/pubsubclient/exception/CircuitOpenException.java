@@ -0,0 +1,10 @@
+package com.example.pubsubclient.exception;
+
+/** A request was not sent because the circuit breaker of its endpoint is open. */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+
+}
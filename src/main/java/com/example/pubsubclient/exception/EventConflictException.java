@@ -0,0 +1,10 @@
+package com.example.pubsubclient.exception;
+
+/** The service answered a read with 409 Conflict. */
+public class EventConflictException extends EventConsumerException {
+
+    public EventConflictException(String message) {
+        super(message, 409);
+    }
+
+}
@@ -1,13 +1,26 @@
 package com.example.pubsubclient.exception;
 
 public class EventConsumerException extends RuntimeException {
+
+    private final int statusCode;
     
     public EventConsumerException(Exception e) {
         super(e);
+        this.statusCode = 0;
     }
 
     public EventConsumerException(String message) {
+        this(message, 0);
+    }
+
+    public EventConsumerException(String message, int statusCode) {
         super(message);
+        this.statusCode = statusCode;
+    }
+
+    /** Error status the service answered with, 0 when the failure was not an error response. */
+    public int statusCode() {
+        return statusCode;
     }
 
 }
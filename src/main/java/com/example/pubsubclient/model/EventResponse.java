@@ -6,8 +6,13 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.Instant;
 import java.util.UUID;
 
-public record EventResponse(
+/**
+ * Event read from a subscription. Without a configured payload type the data
+ * is decoded into plain maps, lists and scalars, otherwise straight into
+ * {@code T}.
+ */
+public record EventResponse<T>(
         UUID id,
-        @JsonProperty("data") Object data,
+        @JsonProperty("data") T data,
         @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ssX") Instant createdAt
 ) {}
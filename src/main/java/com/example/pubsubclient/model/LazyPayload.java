@@ -0,0 +1,115 @@
+package com.example.pubsubclient.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Payload kept as the tokens it was read as, decoded only when asked for.
+ * Read events with {@code LazyPayload} as payload type to route, filter or
+ * forward them without building maps or records for their data: publishing
+ * a {@code LazyPayload} replays its tokens into the request body, in
+ * whichever format the publisher encodes with. Decoding uses the mapper the
+ * payload was read with.
+ */
+@JsonDeserialize(using = LazyPayload.Deserializer.class)
+public final class LazyPayload implements JsonSerializable {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final TokenBuffer tokens;
+    private final ObjectCodec codec;
+
+    private LazyPayload(TokenBuffer tokens, ObjectCodec codec) {
+        this.tokens = tokens;
+        this.codec = codec;
+    }
+
+    /** Decodes the payload into {@code type}. */
+    public <T> T as(Class<T> type) {
+        try (JsonParser parser = tokens.asParser(codec)) {
+            return codec.readValue(parser, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Decodes the payload into a generic {@code type}. */
+    public <T> T as(TypeReference<T> type) {
+        try (JsonParser parser = tokens.asParser(codec)) {
+            return codec.readValue(parser, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parser over the buffered tokens, for reading a few fields without
+     * decoding the rest. The caller closes it.
+     */
+    public JsonParser parser() {
+        return tokens.asParser(codec);
+    }
+
+    /**
+     * The payload as UTF-8 JSON, for handing it on to other systems. The JSON
+     * is encoded again from the buffered tokens rather than copied from the
+     * response, so whitespace and number formatting may differ from the
+     * original, and payloads read as Smile or CBOR come out as JSON too.
+     */
+    public byte[] toJson() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator gen = JSON.createGenerator(out)) {
+            tokens.serialize(gen);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        tokens.serialize(gen);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, serializers);
+    }
+
+    @Override
+    public String toString() {
+        return new String(toJson(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Buffers the tokens of the value without interpreting them, keeping the
+     * mapper that reads them, which every mapper sets on its parsers.
+     */
+    static final class Deserializer extends JsonDeserializer<LazyPayload> {
+        @Override
+        public LazyPayload deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            ObjectCodec codec = p.getCodec();
+            if (codec == null) {
+                throw JsonMappingException.from(p, "LazyPayload needs a parser created by an ObjectMapper");
+            }
+            return new LazyPayload(ctxt.bufferAsCopyOfValue(p), codec);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.sun.net.httpserver.HttpServer;
+import static com.example.pubsubclient.TestUtils.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BatchSizingTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private HttpServer server;
+    private final List<Integer> requestedBatches = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean conflict = new AtomicBoolean();
+
+    @BeforeEach
+    void setup() throws IOException {
+        requestedBatches.clear();
+        conflict.set(false);
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> {
+            int batchSize = Integer.parseInt(exchange.getRequestURI().getQuery().replace("batchSize=", ""));
+            requestedBatches.add(batchSize);
+            if (conflict.get()) {
+                sendJson(exchange, 409, "");
+                return;
+            }
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < batchSize; i++) {
+                body.append(i == 0 ? "" : ",").append("{\"id\": \"").append(UUID.randomUUID())
+                        .append("\", \"data\": \"x\", \"createdAt\": \"2025-07-01T23:31:05Z\"}");
+            }
+            sendJson(exchange, 200, body.append("]").toString());
+        });
+        server.createContext("/org/topics/topic/subscriptions/sub/event-commits", exchange ->
+                sendJson(exchange, 200, "1"));
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testGrowsAfterFullBatchesWithinTarget() {
+        BatchSizeController controller = controller(10, new BatchSizing(5, 100, 100, 1_000_000, 10, 0.5));
+
+        controller.onRead(10, 10, 1_000);
+        controller.onHandled(10, MILLI);
+        Assertions.assertEquals(20, controller.size());
+
+        // a partial batch says nothing about larger ones
+        controller.onRead(20, 12, 1_200);
+        controller.onHandled(12, MILLI);
+        Assertions.assertEquals(20, controller.size());
+
+        // growth stops where the last batch projects to reach the target
+        controller.onRead(20, 20, 2_000);
+        controller.onHandled(20, 80 * MILLI);
+        Assertions.assertEquals(25, controller.size());
+    }
+
+    @Test
+    void testSlowBatchCutsTowardsTarget() {
+        BatchSizing sizing = new BatchSizing(5, 100, 100, 1_000_000, 10, 0.5);
+        BatchSizeController controller = controller(80, sizing);
+
+        // 80 events in 150 ms project 53 events for 100 ms, more than the halved size
+        controller.onRead(80, 80, 8_000);
+        controller.onHandled(80, 150 * MILLI);
+        Assertions.assertEquals(53, controller.size());
+
+        // far over the target the cut is bounded by the decrease factor
+        controller.onRead(53, 53, 5_300);
+        controller.onHandled(53, 10_000 * MILLI);
+        Assertions.assertEquals(26, controller.size());
+    }
+
+    @Test
+    void testResponseSizeIsCapped() {
+        BatchSizeController controller = controller(100, new BatchSizing(5, 200, 1_000, 10_000, 20, 0.5));
+
+        // 100 events in 12000 bytes fit 83 into 10000 bytes
+        controller.onRead(100, 100, 12_000);
+        Assertions.assertEquals(83, controller.size());
+
+        // growth stops at the projected response limit
+        controller.onRead(83, 83, 8_300);
+        controller.onHandled(83, MILLI);
+        Assertions.assertEquals(100, controller.size());
+        controller.onRead(100, 100, 10_000);
+        controller.onHandled(100, MILLI);
+        Assertions.assertEquals(100, controller.size());
+    }
+
+    @Test
+    void testFailuresCutDownToMinimum() {
+        BatchSizeController controller = controller(40, new BatchSizing(8, 100, 100, 1_000_000));
+
+        controller.onFailure();
+        Assertions.assertEquals(20, controller.size());
+        controller.onFailure();
+        controller.onFailure();
+        Assertions.assertEquals(8, controller.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BatchSizing(10, 5, 100, 1_000));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BatchSizing(1, 5, 100, 1_000, 1, 1.0));
+    }
+
+    @Test
+    void testConsumerAdaptsToConflictsAndHandlerFailures() throws Exception {
+        PubSubClient client = new PubSubClient("http://localhost:" + server.getAddress().getPort());
+        List<Integer> reported = new CopyOnWriteArrayList<>();
+        client.metrics().addListener(new MetricsListener() {
+            @Override
+            public void onBatchSizeChanged(String subscription, int batchSize) {
+                reported.add(batchSize);
+            }
+        });
+        AtomicBoolean failing = new AtomicBoolean();
+        EventsHandler handler = (events, commitFn) -> {
+            if (failing.get()) {
+                throw new IllegalStateException("handler failed");
+            }
+        };
+        EventConsumerConfig<Object> config = EventConsumerConfig.of("org", "topic", "sub", 10, 10)
+                .withBackoff(new PollingBackoff(50, 2.0, 0.0))
+                .withBatchSizing(new BatchSizing(5, 40, 1_000, 1_000_000, 10, 0.5));
+
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, config)) {
+            consumer.start();
+            awaitTrue(() -> requestedBatches.size() >= 4);
+            Assertions.assertEquals(List.of(10, 20, 30, 40), requestedBatches.subList(0, 4));
+            awaitTrue(() -> client.metrics().batchSizes("org", "topic", "sub").equals(List.of(consumer.batchSize())));
+
+            conflict.set(true);
+            awaitTrue(() -> consumer.batchSize() == 5);
+            conflict.set(false);
+            awaitTrue(() -> consumer.batchSize() > 5);
+
+            failing.set(true);
+            awaitTrue(() -> consumer.batchSize() == 5);
+            Assertions.assertEquals(Map.of("org/topic/sub#1", 5), client.metrics().getBatchSizes());
+        }
+
+        Assertions.assertEquals(List.of(20, 30, 40, 20, 10, 5), reported.subList(0, 6));
+        Assertions.assertTrue(client.metrics().getBatchSizes().isEmpty());
+    }
+
+    @Test
+    void testConsumersSharingASubscriptionNameKeepTheirOwnSizes() {
+        ClientMetrics metrics = new ClientMetrics();
+        BatchSizing sizing = new BatchSizing(5, 100, 100, 1_000_000);
+        BatchSizeController first = new BatchSizeController(config("topic", 10, sizing), metrics);
+        BatchSizeController second = new BatchSizeController(config("topic", 40, sizing), metrics);
+        BatchSizeController otherTopic = new BatchSizeController(config("other", 60, sizing), metrics);
+
+        second.onFailure();
+        Assertions.assertEquals(List.of(10, 20), sorted(metrics.batchSizes("org", "topic", "sub")));
+        Assertions.assertEquals(List.of(60), metrics.batchSizes("org", "other", "sub"));
+
+        first.close();
+        Assertions.assertEquals(List.of(20), metrics.batchSizes("org", "topic", "sub"));
+        Assertions.assertEquals(Map.of("org/topic/sub#2", 20, "org/other/sub#3", 60), metrics.getBatchSizes());
+        second.close();
+        otherTopic.close();
+        Assertions.assertTrue(metrics.getBatchSizes().isEmpty());
+    }
+
+    private static List<Integer> sorted(List<Integer> sizes) {
+        return sizes.stream().sorted().toList();
+    }
+
+    private static EventConsumerConfig<Object> config(String topic, int batchSize, BatchSizing sizing) {
+        return EventConsumerConfig.of("org", topic, "sub", batchSize, 10).withBatchSizing(sizing);
+    }
+
+    private static BatchSizeController controller(int batchSize, BatchSizing sizing) {
+        EventConsumerConfig<Object> config = EventConsumerConfig.of("org", "topic", "sub", batchSize, 10)
+                .withBatchSizing(sizing);
+        return new BatchSizeController(config, new ClientMetrics());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+}
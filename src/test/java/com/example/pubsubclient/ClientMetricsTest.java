@@ -0,0 +1,147 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.sun.net.httpserver.HttpServer;
+import static com.example.pubsubclient.TestUtils.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ClientMetricsTest {
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(1);
+    }
+
+    @Test
+    void testHistogramPercentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long v = 1; v <= 10_000; v++) {
+            histogram.record(v * 1_000);
+        }
+
+        Assertions.assertEquals(10_000, histogram.count());
+        Assertions.assertEquals(10_000_000, histogram.max());
+        assertWithin(5_000_000, histogram.percentile(0.5));
+        assertWithin(9_900_000, histogram.percentile(0.99));
+        Assertions.assertEquals(10_000_000, histogram.percentile(1));
+    }
+
+    @Test
+    void testRequestsAndBatchesAreRecorded() throws Exception {
+        UUID id = UUID.randomUUID();
+        server.createContext("/org/topics/topic/events", exchange -> sendJson(exchange, 200, "2"));
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> sendJson(exchange, 200, """
+                [{"id": "%s", "data": {"message": "hi"}, "createdAt": "2024-01-01T00:00:00Z"}]
+                """.formatted(id)));
+        server.createContext("/org/topics/topic/subscriptions/sub/event-commits",
+                exchange -> sendJson(exchange, 500, "error"));
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<String> heard = new CopyOnWriteArrayList<>();
+        client.metrics().addListener(new MetricsListener() {
+            @Override
+            public void onRequest(Endpoint endpoint, int statusCode, long latencyNanos, long bytesSent) {
+                heard.add(endpoint + " " + statusCode);
+            }
+        });
+
+        EventPublisher<String> publisher = new EventPublisher<>(
+                new EventPublisherConfig("org", "topic", "sub"), client);
+        publisher.publish(List.of(new EventPublishRequest<>("a"), new EventPublishRequest<>("b")));
+        client.consumeEvents("org", "topic", "sub", 10, (events, commitFn) -> {
+            try {
+                commitFn.apply(List.of(events.get(0).id()));
+            } catch (RuntimeException e) {
+                // the stub refuses commits
+            }
+        });
+
+        ClientMetrics metrics = client.metrics();
+        EndpointMetrics publish = metrics.endpoint(Endpoint.PUBLISH);
+        Assertions.assertEquals(1, publish.getRequests());
+        Assertions.assertEquals(1, publish.statusCount(200));
+        Assertions.assertTrue(publish.getBytesSent() > 0);
+        Assertions.assertEquals(1, publish.getBytesReceived());
+        Assertions.assertEquals(1, metrics.endpoint(Endpoint.READ).getRequests());
+        Assertions.assertTrue(metrics.endpoint(Endpoint.READ).getBytesReceived() > 0);
+        Assertions.assertEquals(1, metrics.endpoint(Endpoint.COMMIT).getFailures());
+        Assertions.assertEquals(1, metrics.endpoint(Endpoint.COMMIT).statusCount(500));
+        Assertions.assertEquals(1, metrics.getBatchesHandled());
+        Assertions.assertEquals(1, metrics.getEventsHandled());
+        Assertions.assertEquals(2, metrics.getEventsPublished());
+        Assertions.assertEquals(List.of("PUBLISH 200", "READ 200", "COMMIT 500"), heard);
+    }
+
+    @Test
+    void testMBeansAreRegistered() throws Exception {
+        server.createContext("/org/topics/topic/events", exchange -> sendJson(exchange, 200, "1"));
+        PubSubClient client = new PubSubClient(baseUrl);
+        client.publishEvents("org", "topic", List.of(new EventPublishRequest<>("a")));
+
+        client.metrics().registerMBeans("metrics-test");
+        try {
+            Object requests = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(
+                    "com.example.pubsubclient:type=PubSubClient,name=\"metrics-test\",endpoint=publish"), "Requests");
+            Assertions.assertEquals(1L, requests);
+        } finally {
+            client.metrics().unregisterMBeans();
+        }
+    }
+
+    @Test
+    void testRecordingDoesNotAllocate() {
+        ClientMetrics metrics = new ClientMetrics();
+        metrics.addListener(new MetricsListener() {
+        });
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        record(metrics, 100_000);
+        long before = threads.getThreadAllocatedBytes(thread);
+        record(metrics, 100_000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // the measurement itself allocates a little, but nothing per recording
+        Assertions.assertEquals(0, allocated / 100_000, "allocated " + allocated + " bytes");
+    }
+
+    private static void record(ClientMetrics metrics, int times) {
+        for (int i = 0; i < times; i++) {
+            metrics.request(Endpoint.PUBLISH, 200, i, 128);
+            metrics.received(Endpoint.PUBLISH, 1);
+            metrics.batchHandled(10, i);
+            metrics.published(10, i);
+        }
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assertions.assertTrue(Math.abs(actual - expected) <= expected / 8,
+                "expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.pubsubclient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CompressionTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final List<String> requestEncodings = new CopyOnWriteArrayList<>();
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        requestEncodings.clear();
+        requestBodies.clear();
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(1);
+    }
+
+    @Test
+    void testLargePublishIsCompressed() throws Exception {
+        server.createContext("/org/topics/topic/events", exchange -> reply(exchange, "2"));
+
+        PubSubClient client = new PubSubClient(baseUrl, new CompressionConfig(ContentCoding.GZIP, 64));
+        int result = client.publishEvents("org", "topic", List.of(
+                new EventPublishRequest<>("a".repeat(100)),
+                new EventPublishRequest<>("b".repeat(100))));
+
+        Assertions.assertEquals(2, result);
+        Assertions.assertEquals(List.of("gzip"), requestEncodings);
+        Assertions.assertTrue(requestBodies.get(0).contains("a".repeat(100)));
+    }
+
+    @Test
+    void testSmallCommitIsSentPlain() throws Exception {
+        server.createContext("/org/topics/topic/subscriptions/sub/event-commits", exchange -> reply(exchange, "1"));
+
+        PubSubClient client = new PubSubClient(baseUrl, new CompressionConfig(ContentCoding.GZIP, 1024));
+        int result = client.commitEvents("org", "topic", "sub", List.of(UUID.randomUUID()));
+
+        Assertions.assertEquals(1, result);
+        Assertions.assertEquals(List.of("identity"), requestEncodings);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"gzip", "deflate"})
+    void testCompressedReadIsDecoded(String encoding) throws Exception {
+        String msg = """
+            [{
+                "id": "%s",
+                "data": {"msg": "%s"},
+                "createdAt": "2025-07-01T00:00:00Z"
+            }]
+            """.formatted(UUID.randomUUID(), "x".repeat(500));
+        List<String> accepted = new CopyOnWriteArrayList<>();
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> {
+            accepted.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            reply(exchange, msg, encoding);
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl, new CompressionConfig(coding(encoding), 64));
+        var events = client.readEvents("org", "topic", "sub", 1);
+
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(Map.of("msg", "x".repeat(500)), events.get(0).data());
+        Assertions.assertTrue(accepted.get(0).contains(encoding));
+    }
+
+    @Test
+    void testUncompressedClientExchangesPlainBodies() throws Exception {
+        server.createContext("/org/topics/topic/events", exchange -> reply(exchange, "1"));
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        int result = client.publishEvents("org", "topic", List.of(new EventPublishRequest<>("a".repeat(100))));
+
+        Assertions.assertEquals(1, result);
+        Assertions.assertEquals(List.of("identity"), requestEncodings);
+    }
+
+    /** Decodes the request and compresses the reply with the first coding the client accepts. */
+    private void reply(HttpExchange exchange, String body) throws IOException {
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        reply(exchange, body, accepted == null ? null : accepted.split(",")[0].trim());
+    }
+
+    /** Decodes the request and compresses the reply with {@code responseEncoding}, {@code null} for none. */
+    private void reply(HttpExchange exchange, String body, String responseEncoding) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        requestEncodings.add(encoding == null ? "identity" : encoding);
+        try (InputStream in = encoding == null
+                ? exchange.getRequestBody()
+                : coding(encoding).decompress(exchange.getRequestBody())) {
+            requestBodies.add(new String(in.readAllBytes()));
+        }
+
+        byte[] bytes = body.getBytes();
+        if (responseEncoding != null) {
+            ContentCoding coding = coding(responseEncoding);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = coding.compress(compressed)) {
+                out.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", coding.name());
+        }
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static ContentCoding coding(String name) {
+        return name.equals("gzip") ? ContentCoding.GZIP : ContentCoding.DEFLATE;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.pubsubclient;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.example.pubsubclient.model.EventResponse;
+
+public class DeduplicatingEventsHandlerTest {
+
+    private final List<UUID> handled = new ArrayList<>();
+    private final List<UUID> committed = new ArrayList<>();
+    private final Function<List<UUID>, Integer> commitFn = ids -> {
+        committed.addAll(ids);
+        return ids.size();
+    };
+
+    @Test
+    void testRedeliveriesAreDroppedAndCommitted() throws Exception {
+        DeduplicatingEventsHandler<String> dedup = new DeduplicatingEventsHandler<>(recording(),
+                new DedupConfig(100, 60_000));
+        EventResponse<String> a = event();
+        EventResponse<String> b = event();
+        EventResponse<String> c = event();
+
+        dedup.handle(List.of(a, b), commitFn);
+        dedup.handle(List.of(b, c), commitFn);
+
+        Assertions.assertEquals(List.of(a.id(), b.id(), c.id()), handled);
+        Assertions.assertEquals(List.of(b.id()), committed);
+        Assertions.assertEquals(1, dedup.duplicates());
+        Assertions.assertEquals(3, dedup.size());
+    }
+
+    @Test
+    void testFailedBatchIsHandledAgain() throws Exception {
+        EventResponse<String> a = event();
+        EventResponse<String> b = event();
+        DeduplicatingEventsHandler<String> failing = new DeduplicatingEventsHandler<>((events, commit) -> {
+            commit.apply(List.of(events.get(0).id()));
+            throw new IllegalStateException("handler failed");
+        }, new DedupConfig(100, 60_000));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> failing.handle(List.of(a, b), commitFn));
+        Assertions.assertThrows(IllegalStateException.class, () -> failing.handle(List.of(a, b), commitFn));
+
+        // a was committed by the handler before it failed, b was never done
+        Assertions.assertEquals(List.of(a.id(), a.id(), b.id()), committed);
+        Assertions.assertEquals(1, failing.duplicates());
+    }
+
+    @Test
+    void testOldestIdsAreEvictedWhenFull() throws Exception {
+        DeduplicatingEventsHandler<String> dedup = new DeduplicatingEventsHandler<>(recording(),
+                new DedupConfig(2, 60_000));
+        EventResponse<String> a = event();
+
+        dedup.handle(List.of(a, event(), event()), commitFn);
+        dedup.handle(List.of(a), commitFn);
+
+        Assertions.assertEquals(4, handled.size());
+        Assertions.assertEquals(0, dedup.duplicates());
+    }
+
+    @Test
+    void testIdsExpire() {
+        UuidCache cache = new UuidCache(new DedupConfig(10, 100));
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        cache.add(first, 1_000);
+        cache.add(second, 1_050);
+
+        Assertions.assertTrue(cache.contains(first, 1_099));
+        Assertions.assertFalse(cache.contains(first, 1_100));
+        Assertions.assertTrue(cache.contains(second, 1_100));
+        cache.add(UUID.randomUUID(), 1_120);
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testCacheMatchesModelUnderChurn(boolean offHeap) {
+        int maxIds = 1_000;
+        UuidCache cache = new UuidCache(new DedupConfig(maxIds, Long.MAX_VALUE, offHeap));
+        ArrayDeque<UUID> order = new ArrayDeque<>();
+        Set<UUID> model = new HashSet<>();
+        List<UUID> known = new ArrayList<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 200_000; i++) {
+            // ids with few distinct bits collide often and exercise the probe sequences
+            UUID id = random.nextInt(4) == 0 && !known.isEmpty()
+                    ? known.get(random.nextInt(known.size()))
+                    : new UUID(random.nextInt(4096), random.nextInt(4096));
+            Assertions.assertEquals(model.contains(id), cache.contains(id, i), "id " + id);
+            if (model.add(id)) {
+                order.add(id);
+                if (order.size() > maxIds) {
+                    model.remove(order.poll());
+                }
+            }
+            cache.add(id, i);
+            known.add(id);
+            if (known.size() > 4 * maxIds) {
+                known.subList(0, maxIds).clear();
+            }
+        }
+        Assertions.assertEquals(model.size(), cache.size());
+    }
+
+    private TypedEventsHandler<String> recording() {
+        return (events, commitFn) -> {
+            for (EventResponse<String> event : events) {
+                handled.add(event.id());
+            }
+        };
+    }
+
+    private static EventResponse<String> event() {
+        return new EventResponse<>(UUID.randomUUID(), "payload", Instant.now());
+    }
+}
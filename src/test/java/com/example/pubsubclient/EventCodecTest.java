@@ -0,0 +1,156 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.example.pubsubclient.model.EventResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EventCodecTest {
+
+    record Greeting(String message) {
+    }
+
+    private HttpServer server;
+    private String baseUrl;
+    private final List<String> requestTypes = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        requestTypes.clear();
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(1);
+    }
+
+    Stream<EventCodec> codecs() {
+        return Stream.of(EventCodec.JSON, EventCodec.SMILE, EventCodec.CBOR);
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void testPublishRoundTrip(EventCodec codec) throws Exception {
+        List<Map<String, Object>> received = new CopyOnWriteArrayList<>();
+        server.createContext("/org/topics/topic/events", exchange -> {
+            requestTypes.add(exchange.getRequestHeaders().getFirst("Content-Type"));
+            received.addAll(codec.mapper().readValue(exchange.getRequestBody().readAllBytes(),
+                    new TypeReference<List<Map<String, Object>>>() {
+                    }));
+            reply(exchange, codec, received.size());
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        int result = client.publishEvents("org", "topic", List.of(
+                new EventPublishRequest<>(new Greeting("a")),
+                new EventPublishRequest<>(new Greeting("b"))), codec);
+
+        Assertions.assertEquals(2, result);
+        Assertions.assertEquals(List.of(codec.contentType()), requestTypes);
+        Assertions.assertEquals(Map.of("message", "a"), received.get(0).get("data"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void testReadAndCommitRoundTrip(EventCodec codec) throws Exception {
+        UUID id = UUID.randomUUID();
+        List<String> accepted = new CopyOnWriteArrayList<>();
+        List<UUID> committed = new CopyOnWriteArrayList<>();
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> {
+            accepted.add(String.valueOf(exchange.getRequestHeaders().getFirst("Accept")));
+            reply(exchange, codec, List.of(Map.of(
+                    "id", id,
+                    "data", Map.of("message", "hello"),
+                    "createdAt", "2024-01-01T00:00:00Z")));
+        });
+        server.createContext("/org/topics/topic/subscriptions/sub/event-commits", exchange -> {
+            committed.addAll(codec.mapper().readValue(exchange.getRequestBody().readAllBytes(),
+                    new TypeReference<List<UUID>>() {
+                    }));
+            reply(exchange, codec, committed.size());
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<EventResponse<Greeting>> events = client.readEvents("org", "topic", "sub", 1, Greeting.class, codec);
+        int commits = client.commitEvents("org", "topic", "sub", List.of(events.get(0).id()), codec);
+
+        Assertions.assertEquals(new Greeting("hello"), events.get(0).data());
+        Assertions.assertTrue(accepted.get(0).startsWith(codec.contentType()));
+        Assertions.assertEquals(1, commits);
+        Assertions.assertEquals(List.of(id), committed);
+    }
+
+    @Test
+    void testResponseDecodedByItsContentType() throws Exception {
+        UUID id = UUID.randomUUID();
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> TestUtils.sendJson(exchange,
+                200, """
+                        [{"id": "%s", "data": {"message": "hello"}, "createdAt": "2024-01-01T00:00:00Z"}]
+                        """.formatted(id)));
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<EventResponse<Greeting>> events =
+                client.readEvents("org", "topic", "sub", 1, Greeting.class, EventCodec.SMILE);
+
+        Assertions.assertEquals(id, events.get(0).id());
+        Assertions.assertEquals(new Greeting("hello"), events.get(0).data());
+    }
+
+    @Test
+    void testCustomMapperDecodesResponsesOfItsContentType() throws Exception {
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> TestUtils.sendJson(exchange,
+                200, """
+                        [{"id": "%s", "data": {"message": "hello", "sender": "a"}, "createdAt": "2024-01-01T00:00:00Z"}]
+                        """.formatted(UUID.randomUUID())));
+        ObjectMapper lenient = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        EventCodec codec = EventCodec.of("application/json", lenient);
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        Assertions.assertThrows(IOException.class,
+                () -> client.readEvents("org", "topic", "sub", 1, Greeting.class, EventCodec.JSON));
+        List<EventResponse<Greeting>> events = client.readEvents("org", "topic", "sub", 1, Greeting.class, codec);
+
+        Assertions.assertEquals(new Greeting("hello"), events.get(0).data());
+        Assertions.assertNotSame(lenient, codec.mapper());
+        Assertions.assertThrows(InvalidDefinitionException.class, () -> lenient.writeValueAsString(Instant.EPOCH));
+    }
+
+    private static void reply(HttpExchange exchange, EventCodec codec, Object body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = codec.mapper().writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.getResponseHeaders().add("Content-Type", codec.contentType());
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
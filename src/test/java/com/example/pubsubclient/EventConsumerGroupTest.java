@@ -0,0 +1,157 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.sun.net.httpserver.HttpServer;
+import static com.example.pubsubclient.TestUtils.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EventConsumerGroupTest {
+
+    private HttpServer server;
+    private PubSubClient client;
+    /** Events left per subscription, subscriptions without an entry are empty. */
+    private final Map<String, AtomicLong> backlog = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> handled = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        backlog.clear();
+        handled.clear();
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/org/topics/topic/subscriptions/", exchange -> {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            if (path[path.length - 1].equals("event-commits")) {
+                sendJson(exchange, 200, "1");
+                return;
+            }
+            int batchSize = Integer.parseInt(exchange.getRequestURI().getQuery().replace("batchSize=", ""));
+            AtomicLong left = backlog.get(path[path.length - 2]);
+            long count = left == null ? 0 : Math.min(batchSize, Math.max(0, left.getAndAdd(-batchSize)));
+            if (count == 0) {
+                sendJson(exchange, 204, "");
+                return;
+            }
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < count; i++) {
+                body.append(i == 0 ? "" : ",").append("{\"id\": \"").append(UUID.randomUUID())
+                        .append("\", \"data\": \"x\", \"createdAt\": \"2025-07-01T23:31:05Z\"}");
+            }
+            sendJson(exchange, 200, body.append("]").toString());
+        });
+        server.start();
+        client = new PubSubClient("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testManySubscriptionsShareFewThreads() throws Exception {
+        long threadsBefore = groupThreads();
+        try (EventConsumerGroup group = new EventConsumerGroup(client, 2)) {
+            for (int i = 0; i < 50; i++) {
+                backlog.put("sub" + i, new AtomicLong(3));
+                group.register(handler("sub" + i), config("sub" + i, 10));
+            }
+            Assertions.assertEquals(50, group.size());
+
+            awaitTrue(() -> handled.size() == 50 && handled.values().stream().allMatch(n -> n.get() == 3));
+            // one scheduler and two workers
+            Assertions.assertTrue(groupThreads() - threadsBefore <= 3, "threads " + (groupThreads() - threadsBefore));
+        }
+    }
+
+    @Test
+    void testLargeBatchesDoNotStarveOthers() throws Exception {
+        backlog.put("large", new AtomicLong(Long.MAX_VALUE / 2));
+        backlog.put("small", new AtomicLong(Long.MAX_VALUE / 2));
+        try (EventConsumerGroup group = new EventConsumerGroup(client, 1, 10, error -> {
+        })) {
+            EventConsumerGroup.Member large = group.register(handler("large"), config("large", 50));
+            EventConsumerGroup.Member small = group.register(handler("small"), config("small", 10));
+
+            awaitTrue(() -> small.received() >= 300);
+            // both are credited 10 events per turn, so they receive about as many events
+            double ratio = (double) large.received() / small.received();
+            Assertions.assertTrue(ratio > 0.5 && ratio < 2, "ratio " + ratio);
+            Assertions.assertTrue(small.polls() > 3 * large.polls());
+        }
+    }
+
+    @Test
+    void testWeightsShareEvents() throws Exception {
+        backlog.put("light", new AtomicLong(Long.MAX_VALUE / 2));
+        backlog.put("heavy", new AtomicLong(Long.MAX_VALUE / 2));
+        try (EventConsumerGroup group = new EventConsumerGroup(client, 1, 10, error -> {
+        })) {
+            EventConsumerGroup.Member light = group.register(handler("light"), config("light", 30), 1);
+            EventConsumerGroup.Member heavy = group.register(handler("heavy"), config("heavy", 30), 3);
+
+            awaitTrue(() -> heavy.received() >= 900);
+            double ratio = (double) heavy.received() / light.received();
+            Assertions.assertTrue(ratio > 2 && ratio < 4, "ratio " + ratio);
+        }
+    }
+
+    @Test
+    void testRemovedSubscriptionIsNoLongerPolled() throws Exception {
+        try (EventConsumerGroup group = new EventConsumerGroup(client, 1)) {
+            EventConsumerGroup.Member member = group.register(handler("sub"), config("sub", 10));
+            awaitTrue(() -> member.polls() >= 2);
+
+            member.remove();
+            long polls = member.polls();
+            Thread.sleep(100);
+
+            Assertions.assertEquals(0, group.size());
+            Assertions.assertTrue(member.polls() <= polls + 1);
+        }
+    }
+
+    @Test
+    void testPrefetchingIsRejected() {
+        try (EventConsumerGroup group = new EventConsumerGroup(client, 1)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> group.register(handler("sub"),
+                    config("sub", 10).withPrefetch(new PrefetchConfig(20, 1024 * 1024))));
+        }
+    }
+
+    private EventsHandler handler(String subscription) {
+        return (events, commit) -> handled.computeIfAbsent(subscription, s -> new AtomicLong()).addAndGet(events.size());
+    }
+
+    private static EventConsumerConfig<Object> config(String subscription, int batchSize) {
+        return EventConsumerConfig.of("org", "topic", subscription, batchSize, 10);
+    }
+
+    private static long groupThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("pubsub-group-"))
+                .count();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
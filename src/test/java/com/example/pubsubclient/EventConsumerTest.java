@@ -2,8 +2,15 @@ package com.example.pubsubclient;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.AfterEach;
@@ -67,14 +74,13 @@ public class EventConsumerTest {
 
         PubSubClient client = new PubSubClient(baseUrl);
         EventsHandler handler = (events, commit) -> commit.apply(List.of(events.get(0).id()));
-        EventConsumerConfig cfg = new EventConsumerConfig(
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of(
                 "org",
                 "topic",
                 "sub2",
                 1,
-                400L,
-                handler);
-        try (EventConsumer consumer = new EventConsumer(client, handler, cfg)) {
+                400L);
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, cfg)) {
             consumer.start();
             Thread.sleep(1000L);
         }
@@ -102,14 +108,13 @@ public class EventConsumerTest {
 
         PubSubClient client = new PubSubClient(baseUrl);
         EventsHandler handler = (events, commit) -> commit.apply(List.of(events.get(0).id()));
-        EventConsumerConfig cfg = new EventConsumerConfig(
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of(
                 "org",
                 "topic",
                 "sub2",
                 1,
-                400L,
-                handler);
-        try (EventConsumer consumer = new EventConsumer(client, handler, cfg)) {
+                400L);
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, cfg)) {
             consumer.start();
             Thread.sleep(1000L);
         }
@@ -147,14 +152,13 @@ public class EventConsumerTest {
 
         PubSubClient client = new PubSubClient(baseUrl);
         EventsHandler handler = (events, commit) -> commit.apply(List.of(events.get(0).id()));
-        EventConsumerConfig cfg = new EventConsumerConfig(
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of(
                 "org",
                 "topic",
                 "sub2",
                 1,
-                400L,
-                handler);
-        try (EventConsumer consumer = new EventConsumer(client, handler, cfg, e -> System.out.println("aaaaaaa" + e.getLocalizedMessage()))) {
+                400L);
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, cfg, e -> System.out.println("aaaaaaa" + e.getLocalizedMessage()))) {
             consumer.start();
             Thread.sleep(1000L);
         }
@@ -163,5 +167,309 @@ public class EventConsumerTest {
         Assertions.assertTrue(commitCalls.get() == calls.get());
     }
 
-    
+    @Test
+    void testAdaptivePollingFetchesFullBatchesImmediately() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/org/topics/topic/subscriptions/sub2/events", exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                calls.incrementAndGet();
+                var message = """
+                [{
+                    "id": "9f320609-0405-44a3-9042-953a353aa40c",
+                    "data": {
+                        "message": "aaaaa"
+                    },
+                    "createdAt": "2025-07-01T23:31:05Z"
+                }]
+                """;
+
+                sendJson(exchange, 200, message);
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventsHandler handler = (events, commit) -> {};
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of(
+                "org",
+                "topic",
+                "sub2",
+                1,
+                10_000L).withBackoff(new PollingBackoff(10_000L, 2.0, 0.2));
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, cfg)) {
+            consumer.start();
+            Thread.sleep(1000L);
+        }
+
+        Assertions.assertTrue(calls.get() >= 5);
+    }
+
+    @Test
+    void testAdaptivePollingBacksOffWhenIdle() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/org/topics/topic/subscriptions/sub2/events", exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                calls.incrementAndGet();
+                sendJson(exchange, 200, "[]");
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventsHandler handler = (events, commit) -> {};
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of(
+                "org",
+                "topic",
+                "sub2",
+                10,
+                50L).withBackoff(new PollingBackoff(400L, 2.0, 0.0));
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, cfg)) {
+            consumer.start();
+            Thread.sleep(1000L);
+        }
+
+        // 0, 50, 150, 350, 750 ms: a fixed 50 ms rate would have polled about 20 times
+        Assertions.assertTrue(calls.get() >= 3);
+        Assertions.assertTrue(calls.get() <= 7);
+    }
+
+    @Test
+    void testPrefetchReadsWhileHandlerRuns() throws Exception {
+        CountDownLatch secondRead = new CountDownLatch(2);
+        server.createContext("/org/topics/topic/subscriptions/sub2/events", exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                secondRead.countDown();
+                sendJson(exchange, 200, singleEvent());
+            }
+        });
+        server.createContext("/org/topics/topic/subscriptions/sub2/event-commits", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                sendJson(exchange, 200, "1");
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        AtomicBoolean overlapped = new AtomicBoolean();
+        EventsHandler handler = (events, commit) -> {
+            // only completes if the next batch is read while this one is handled
+            if (secondRead.await(2, TimeUnit.SECONDS)) {
+                overlapped.set(true);
+            }
+            commit.apply(List.of(events.get(0).id()));
+        };
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of(
+                "org",
+                "topic",
+                "sub2",
+                1,
+                400L).withPrefetch(new PrefetchConfig(10, 1_000_000));
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, cfg)) {
+            consumer.start();
+            Thread.sleep(500L);
+        }
+
+        Assertions.assertTrue(overlapped.get());
+    }
+
+    @Test
+    void testPrefetchIsBoundedByEventCount() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/org/topics/topic/subscriptions/sub2/events", exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                calls.incrementAndGet();
+                sendJson(exchange, 200, singleEvent());
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        CountDownLatch release = new CountDownLatch(1);
+        EventsHandler handler = (events, commit) -> release.await();
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of(
+                "org",
+                "topic",
+                "sub2",
+                1,
+                10L).withPrefetch(new PrefetchConfig(2, 1_000_000));
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, cfg)) {
+            consumer.start();
+            Thread.sleep(1000L);
+            // one batch in the handler plus two buffered
+            Assertions.assertEquals(3, calls.get());
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testCoalescedCommitsAreFlushedOnClose() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+        List<String> commitBodies = new CopyOnWriteArrayList<>();
+        server.createContext("/org/topics/topic/subscriptions/sub2/events", exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                reads.incrementAndGet();
+                sendJson(exchange, 200, singleEvent());
+            }
+        });
+        server.createContext("/org/topics/topic/subscriptions/sub2/event-commits", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                commitBodies.add(new String(exchange.getRequestBody().readAllBytes()));
+                sendJson(exchange, 200, "1");
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<UUID> handled = new CopyOnWriteArrayList<>();
+        EventsHandler handler = (events, commit) -> {
+            handled.add(events.get(0).id());
+            commit.apply(List.of(events.get(0).id()));
+        };
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of(
+                "org",
+                "topic",
+                "sub2",
+                1,
+                100L).withCommitCoalescing(new CommitCoalescingConfig(1_000, 60_000L));
+        CompletableFuture<Integer> firstCommit;
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, cfg)) {
+            consumer.start();
+            Thread.sleep(500L);
+            Assertions.assertTrue(commitBodies.isEmpty());
+            firstCommit = consumer.commitCompletion(handled.get(0));
+            Assertions.assertFalse(firstCommit.isDone());
+        }
+
+        Assertions.assertEquals(1, firstCommit.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(reads.get() >= 2);
+        List<UUID> committed = new ArrayList<>();
+        for (String body : commitBodies) {
+            committed.addAll(List.of(mapper.readValue(body, UUID[].class)));
+        }
+        Assertions.assertEquals(handled, committed);
+    }
+
+    @Test
+    void testCoalescedCommitsAreSentWhenFull() throws Exception {
+        List<String> commitBodies = new CopyOnWriteArrayList<>();
+        server.createContext("/org/topics/topic/subscriptions/sub2/events", exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                sendJson(exchange, 200, singleEvent());
+            }
+        });
+        server.createContext("/org/topics/topic/subscriptions/sub2/event-commits", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                commitBodies.add(new String(exchange.getRequestBody().readAllBytes()));
+                sendJson(exchange, 200, "3");
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<UUID> handled = new CopyOnWriteArrayList<>();
+        EventsHandler handler = (events, commit) -> {
+            handled.add(events.get(0).id());
+            commit.apply(List.of(events.get(0).id()));
+        };
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of(
+                "org",
+                "topic",
+                "sub2",
+                1,
+                10L).withCommitCoalescing(new CommitCoalescingConfig(3, 60_000L));
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, handler, cfg)) {
+            consumer.start();
+            long deadline = System.currentTimeMillis() + 5_000L;
+            while (commitBodies.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+        }
+
+        Assertions.assertEquals(3, mapper.readValue(commitBodies.get(0), UUID[].class).length);
+    }
+
+    @Test
+    void testCoalescerRejectsCommitsAfterClose() {
+        EventConsumerConfig<Object> cfg = EventConsumerConfig.of("org", "topic", "sub2", 1, 10L)
+                .withCommitCoalescing(new CommitCoalescingConfig(3, 60_000L));
+        CommitCoalescer coalescer = new CommitCoalescer(new PubSubClient(baseUrl), cfg, error -> {
+        });
+        coalescer.close();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> coalescer.commit(List.of(UUID.randomUUID())));
+    }
+
+    record Message(String message) {}
+
+    @Test
+    void testTypedConsumer() throws Exception {
+        server.createContext("/org/topics/topic/subscriptions/sub2/events", exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                sendJson(exchange, 200, singleEvent());
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<Message> received = new CopyOnWriteArrayList<>();
+        TypedEventsHandler<Message> handler = (events, commit) -> received.add(events.get(0).data());
+        EventConsumerConfig<Message> cfg = EventConsumerConfig.of(
+                "org",
+                "topic",
+                "sub2",
+                1,
+                400L).withPayloadType(Message.class);
+        try (EventConsumer<Message> consumer = new EventConsumer<>(client, handler, cfg)) {
+            consumer.start();
+            Thread.sleep(1000L);
+        }
+
+        Assertions.assertEquals(new Message("aaaaa"), received.get(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cfg.withPayloadType((Class<?>) null));
+    }
+
+    @Test
+    void testStreamingConsumerHandsOverEventsOneByOne() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/org/topics/topic/subscriptions/sub2/events", exchange -> {
+            if (exchange.getRequestMethod().equals("GET") && calls.incrementAndGet() == 1) {
+                var message = """
+                [
+                    {"id": "%s", "data": {"message": "a"}, "createdAt": "2025-07-01T23:31:05Z"},
+                    {"id": "%s", "data": {"message": "b"}, "createdAt": "2025-07-01T23:31:05Z"},
+                    {"id": "%s", "data": {"message": "c"}, "createdAt": "2025-07-01T23:31:05Z"}
+                ]
+                """.formatted(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+                sendJson(exchange, 200, message);
+            } else {
+                sendJson(exchange, 200, "[]");
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        List<Message> received = new CopyOnWriteArrayList<>();
+        TypedEventsHandler<Message> handler = (events, commit) -> {
+            batchSizes.add(events.size());
+            received.add(events.get(0).data());
+        };
+        EventConsumerConfig<Message> cfg = EventConsumerConfig.of(
+                "org",
+                "topic",
+                "sub2",
+                3,
+                400L).withPayloadType(Message.class).withStreaming(true);
+        try (EventConsumer<Message> consumer = new EventConsumer<>(client, handler, cfg)) {
+            consumer.start();
+            Thread.sleep(1000L);
+        }
+
+        Assertions.assertEquals(List.of(1, 1, 1), batchSizes);
+        Assertions.assertEquals(List.of(new Message("a"), new Message("b"), new Message("c")), received);
+    }
+
+    private static String singleEvent() {
+        return """
+            [{
+                "id": "%s",
+                "data": {
+                    "message": "aaaaa"
+                },
+                "createdAt": "2025-07-01T23:31:05Z"
+            }]
+            """.formatted(UUID.randomUUID());
+    }
 }
@@ -0,0 +1,223 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.example.pubsubclient.model.EventResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import static com.example.pubsubclient.TestUtils.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EventFlowPublisherTest {
+
+    private HttpServer server;
+    private PubSubClient client;
+    private final AtomicLong backlog = new AtomicLong();
+    private final List<Integer> requestedBatches = new CopyOnWriteArrayList<>();
+    private final List<String> committed = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        backlog.set(Long.MAX_VALUE / 2);
+        requestedBatches.clear();
+        committed.clear();
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> {
+            int batchSize = Integer.parseInt(exchange.getRequestURI().getQuery().replace("batchSize=", ""));
+            requestedBatches.add(batchSize);
+            long count = Math.min(batchSize, Math.max(0, backlog.getAndAdd(-batchSize)));
+            if (count == 0) {
+                sendJson(exchange, 204, "");
+                return;
+            }
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < count; i++) {
+                body.append(i == 0 ? "" : ",").append("{\"id\": \"").append(UUID.randomUUID())
+                        .append("\", \"data\": \"x\", \"createdAt\": \"2025-07-01T23:31:05Z\"}");
+            }
+            sendJson(exchange, 200, body.append("]").toString());
+        });
+        server.createContext("/org/topics/topic/subscriptions/sub/event-commits", exchange -> {
+            JsonNode ids = EventCodec.JSON.mapper().readTree(exchange.getRequestBody().readAllBytes());
+            ids.forEach(id -> committed.add(id.asText()));
+            sendJson(exchange, 200, Integer.toString(ids.size()));
+        });
+        server.start();
+        client = new PubSubClient("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testReadsFollowDemand() throws Exception {
+        try (EventFlowPublisher<Object> publisher = new EventFlowPublisher<>(client, config())) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            publisher.subscribe(subscriber);
+
+            subscriber.subscription.join().request(3);
+            awaitTrue(() -> subscriber.events.size() == 3);
+            Thread.sleep(100);
+            Assertions.assertEquals(List.of(3), requestedBatches);
+
+            subscriber.subscription.join().request(25);
+            awaitTrue(() -> subscriber.events.size() == 28);
+            Thread.sleep(100);
+            // reads never ask for more than the batch size
+            Assertions.assertEquals(List.of(3, 10, 10, 5), requestedBatches);
+        }
+    }
+
+    @Test
+    void testAcknowledgedEventsAreCommitted() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        try (EventFlowPublisher<Object> publisher = new EventFlowPublisher<>(client, config())) {
+            publisher.subscribe(subscriber);
+            subscriber.subscription.join().request(4);
+            awaitTrue(() -> subscriber.events.size() == 4);
+
+            publisher.acknowledge(subscriber.events.get(0).id());
+            publisher.acknowledge(List.of(subscriber.events.get(2).id()));
+        }
+
+        Assertions.assertEquals(List.of(subscriber.events.get(0).id().toString(),
+                subscriber.events.get(2).id().toString()), committed);
+        Assertions.assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void testEmptySubscriptionBacksOff() throws Exception {
+        backlog.set(0);
+        EventConsumerConfig<Object> config = config().withBackoff(new PollingBackoff(200, 2.0, 0.0));
+        try (EventFlowPublisher<Object> publisher = new EventFlowPublisher<>(client, config)) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            publisher.subscribe(subscriber);
+            subscriber.subscription.join().request(5);
+            Thread.sleep(300);
+
+            // the first read and the retries after 20, 40, 80 and 160 ms at most
+            Assertions.assertTrue(requestedBatches.size() <= 5, "reads " + requestedBatches.size());
+            backlog.set(2);
+            awaitTrue(() -> subscriber.events.size() == 2);
+        }
+    }
+
+    @Test
+    void testCancelStopsReading() throws Exception {
+        try (EventFlowPublisher<Object> publisher = new EventFlowPublisher<>(client, config())) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            publisher.subscribe(subscriber);
+            subscriber.subscription.join().request(Long.MAX_VALUE);
+            awaitTrue(() -> subscriber.events.size() >= 20);
+
+            subscriber.subscription.join().cancel();
+            Thread.sleep(50);
+            int reads = requestedBatches.size();
+            Thread.sleep(100);
+
+            Assertions.assertEquals(reads, requestedBatches.size());
+        }
+    }
+
+    @Test
+    void testNonPositiveDemandFailsTheSubscriber() throws Exception {
+        try (EventFlowPublisher<Object> publisher = new EventFlowPublisher<>(client, config())) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            publisher.subscribe(subscriber);
+
+            subscriber.subscription.join().request(0);
+
+            Assertions.assertInstanceOf(IllegalArgumentException.class, subscriber.error.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(requestedBatches.isEmpty());
+        }
+    }
+
+    @Test
+    void testAcknowledgeAfterCloseFails() {
+        EventFlowPublisher<Object> publisher = new EventFlowPublisher<>(client, config());
+        publisher.close();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> publisher.acknowledge(UUID.randomUUID()));
+        Assertions.assertTrue(committed.isEmpty());
+    }
+
+    @Test
+    void testSubscribersRacingCloseAreCompleted() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            EventFlowPublisher<Object> publisher = new EventFlowPublisher<>(client, config());
+            List<RecordingSubscriber> subscribers = new CopyOnWriteArrayList<>();
+            Thread subscribing = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    RecordingSubscriber subscriber = new RecordingSubscriber();
+                    subscribers.add(subscriber);
+                    publisher.subscribe(subscriber);
+                }
+            });
+            subscribing.start();
+            publisher.close();
+            subscribing.join();
+
+            for (RecordingSubscriber subscriber : subscribers) {
+                awaitTrue(() -> subscriber.completed);
+            }
+        }
+    }
+
+    private static EventConsumerConfig<Object> config() {
+        return EventConsumerConfig.of("org", "topic", "sub", 10, 20);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<EventResponse<Object>> {
+        final CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<>();
+        final List<EventResponse<Object>> events = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Throwable> error = new CompletableFuture<>();
+        volatile boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription.complete(subscription);
+        }
+
+        @Override
+        public void onNext(EventResponse<Object> item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
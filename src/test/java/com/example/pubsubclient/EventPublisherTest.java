@@ -2,7 +2,12 @@ package com.example.pubsubclient;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.AfterEach;
@@ -11,6 +16,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.sun.net.httpserver.HttpServer;
 import com.example.pubsubclient.model.EventPublishRequest;
 import static com.example.pubsubclient.TestUtils.*;
@@ -79,4 +86,214 @@ public class EventPublisherTest {
         Assertions.assertEquals(1, calls.get());
         Assertions.assertEquals(1, errors.get());
     }
+
+    @Test
+    void testAsyncEventPublishing() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/org/topics/topic/events", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                calls.incrementAndGet();
+                sendJson(exchange, 200, "1");
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub");
+        AtomicInteger errors = new AtomicInteger();
+        PublishingErrorHandler<String> errorHandler = (error, events) -> errors.incrementAndGet();
+        EventPublisher<String> publisher = new EventPublisher<>(cfg, client, errorHandler);
+
+        var first = publisher.publishAsync(new EventPublishRequest<>("first"));
+        var second = publisher.publishAsync(new EventPublishRequest<>("second"));
+
+        Assertions.assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertEquals(0, errors.get());
+    }
+
+    @Test
+    void testAsyncEventPublishingOnError() throws Exception {
+        server.createContext("/org/topics/topic/events", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                sendJson(exchange, 500, "error");
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub");
+        AtomicInteger errors = new AtomicInteger();
+        PublishingErrorHandler<String> errorHandler = (error, events) -> errors.incrementAndGet();
+        EventPublisher<String> publisher = new EventPublisher<>(cfg, client, errorHandler);
+
+        int result = publisher.publishAsync(new EventPublishRequest<>("data")).get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(0, result);
+        Assertions.assertEquals(1, errors.get());
+    }
+
+    @Test
+    void testBatchingFlushesOnEventCount() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        server.createContext("/org/topics/topic/events", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                int events = countEvents(exchange.getRequestBody().readAllBytes());
+                batchSizes.add(events);
+                sendJson(exchange, 200, String.valueOf(events));
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withBatching(new BatchingConfig(3, 1_000_000, 60_000));
+        try (EventPublisher<String> publisher = new EventPublisher<>(cfg, client)) {
+            var first = publisher.publishAsync(new EventPublishRequest<>("a"));
+            var second = publisher.publishAsync(new EventPublishRequest<>("b"));
+            var third = publisher.publishAsync(new EventPublishRequest<>("c"));
+
+            Assertions.assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, second.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, third.get(5, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertEquals(List.of(3), batchSizes);
+    }
+
+    @Test
+    void testBatchingFlushesAfterLinger() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        server.createContext("/org/topics/topic/events", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                int events = countEvents(exchange.getRequestBody().readAllBytes());
+                batchSizes.add(events);
+                sendJson(exchange, 200, String.valueOf(events));
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withBatching(new BatchingConfig(100, 1_000_000, 100));
+        try (EventPublisher<String> publisher = new EventPublisher<>(cfg, client)) {
+            var first = publisher.publishAsync(new EventPublishRequest<>("a"));
+            var second = publisher.publishAsync(new EventPublishRequest<>("b"));
+
+            Assertions.assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, second.get(5, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertEquals(List.of(2), batchSizes);
+    }
+
+    @Test
+    void testBatchingSplitsOversizedBatches() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        server.createContext("/org/topics/topic/events", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                int events = countEvents(exchange.getRequestBody().readAllBytes());
+                batchSizes.add(events);
+                sendJson(exchange, 200, String.valueOf(events));
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        // every event serializes to {"data":"x"} plus a separator, 13 bytes
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withBatching(new BatchingConfig(100, 30, 60_000));
+        try (EventPublisher<String> publisher = new EventPublisher<>(cfg, client)) {
+            int result = publisher.publish(List.of(
+                    new EventPublishRequest<>("a"),
+                    new EventPublishRequest<>("b"),
+                    new EventPublishRequest<>("c"),
+                    new EventPublishRequest<>("d"),
+                    new EventPublishRequest<>("e")));
+
+            Assertions.assertEquals(5, result);
+        }
+
+        Assertions.assertEquals(List.of(1, 2, 2), batchSizes.stream().sorted().toList());
+    }
+
+    @Test
+    void testBatchingFlushesOnSizeFromTheFirstEvent() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        server.createContext("/org/topics/topic/events", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                int events = countEvents(exchange.getRequestBody().readAllBytes());
+                batchSizes.add(events);
+                sendJson(exchange, 200, String.valueOf(events));
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        // a small event serializes to {"data":"x"}, 12 bytes, the large one to more than the limit
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withBatching(new BatchingConfig(100, 30, 60_000));
+        CompletableFuture<Integer> last;
+        try (EventPublisher<String> publisher = new EventPublisher<>(cfg, client)) {
+            var first = publisher.publishAsync(new EventPublishRequest<>("a"));
+            var second = publisher.publishAsync(new EventPublishRequest<>("b"));
+            var large = publisher.publishAsync(new EventPublishRequest<>("x".repeat(100)));
+            last = publisher.publishAsync(new EventPublishRequest<>("c"));
+
+            // both flushes happen long before the linger time
+            Assertions.assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, second.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, large.get(5, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertEquals(1, last.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of(1, 1, 2), batchSizes.stream().sorted().toList());
+    }
+
+    @Test
+    void testBatchedEventsAreSerializedOnce() throws Exception {
+        server.createContext("/org/topics/topic/events", exchange -> {
+            int events = countEvents(exchange.getRequestBody().readAllBytes());
+            sendJson(exchange, 200, String.valueOf(events));
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withBatching(new BatchingConfig(3, 1_000_000, 60_000));
+        AtomicInteger serialized = new AtomicInteger();
+        try (EventPublisher<Counted> publisher = new EventPublisher<>(cfg, client)) {
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (String value : List.of("a", "b", "c")) {
+                results.add(publisher.publishAsync(new EventPublishRequest<>(new Counted(value, serialized))));
+            }
+            for (CompletableFuture<Integer> result : results) {
+                Assertions.assertEquals(1, result.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        Assertions.assertEquals(3, serialized.get());
+    }
+
+    @Test
+    void testBatchingRejectsEventsAfterClose() {
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withBatching(new BatchingConfig(3, 1_000_000, 60_000));
+        EventPublisher<String> publisher = new EventPublisher<>(cfg, new PubSubClient(baseUrl));
+        publisher.close();
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> publisher.publishAsync(new EventPublishRequest<>("late")));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> publisher.publishAsync(List.of(new EventPublishRequest<>("late"))));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> publisher.publish(List.of(new EventPublishRequest<>("late"))));
+    }
+
+    /** Payload that counts how often it is serialized. */
+    public record Counted(String value, @JsonIgnore AtomicInteger serialized) {
+        @JsonProperty("value")
+        public String json() {
+            serialized.incrementAndGet();
+            return value;
+        }
+    }
+
+    private static int countEvents(byte[] body) {
+        return new String(body).split("\"data\"", -1).length - 1;
+    }
 }
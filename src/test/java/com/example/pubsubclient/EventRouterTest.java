@@ -0,0 +1,165 @@
+package com.example.pubsubclient;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.pubsubclient.exception.EventConsumerException;
+import com.example.pubsubclient.model.EventResponse;
+import com.example.pubsubclient.model.LazyPayload;
+import com.fasterxml.jackson.core.JsonPointer;
+
+public class EventRouterTest {
+
+    private final List<UUID> committed = Collections.synchronizedList(new ArrayList<>());
+    private final Function<List<UUID>, Integer> commitFn = ids -> {
+        committed.addAll(ids);
+        return ids.size();
+    };
+
+    @Test
+    void testLazyPayloadsAreRoutedByField() throws Exception {
+        Recording<LazyPayload> orders = new Recording<>();
+        Recording<LazyPayload> refunds = new Recording<>();
+        Recording<LazyPayload> gold = new Recording<>();
+        EventRouter<LazyPayload> router = EventRouter.<LazyPayload>builder()
+                .route("/customer/tier", 2, gold)
+                .routeBy("/type", Map.of("order", orders, "refund", refunds))
+                .build();
+
+        List<EventResponse<LazyPayload>> events = List.of(
+                lazy("{\"type\": \"order\", \"customer\": {\"tier\": 1}}"),
+                lazy("{\"customer\": {\"tier\": 2}, \"type\": \"order\"}"),
+                lazy("{\"lines\": [{\"sku\": \"a\"}], \"type\": \"refund\"}"),
+                lazy("{\"type\": \"order\"}"));
+        router.handle(events, commitFn);
+
+        Assertions.assertEquals(List.of(events.get(0).id(), events.get(3).id()), orders.ids);
+        Assertions.assertEquals(List.of(events.get(2).id()), refunds.ids);
+        Assertions.assertEquals(List.of(events.get(1).id()), gold.ids);
+        Assertions.assertTrue(committed.isEmpty());
+    }
+
+    @Test
+    void testUnmatchedEventsAreReportedCommittedOrSentToFallback() throws Exception {
+        Recording<Object> orders = new Recording<>();
+        EventResponse<Object> order = event(Map.of("type", "order"));
+        EventResponse<Object> other = event(Map.of("type", "other"));
+        EventResponse<Object> untyped = event("plain");
+
+        // by default they are left for redelivery once the matched ones are handled
+        EventConsumerException error = Assertions.assertThrows(EventConsumerException.class, () ->
+                EventRouter.<Object>builder().route("/typ", "order", orders).route("/type", "order", orders).build()
+                        .handle(List.of(order, other, untyped), commitFn));
+        Assertions.assertTrue(error.getMessage().contains(other.id().toString()));
+        Assertions.assertEquals(List.of(order.id()), orders.ids);
+        Assertions.assertTrue(committed.isEmpty());
+
+        orders.ids.clear();
+        EventRouter.<Object>builder().route("/type", "order", orders).commitUnmatched().build()
+                .handle(List.of(order, other, untyped), commitFn);
+        Assertions.assertEquals(List.of(order.id()), orders.ids);
+        Assertions.assertEquals(List.of(other.id(), untyped.id()), committed);
+
+        Recording<Object> fallback = new Recording<>();
+        EventRouter.<Object>builder().route("/type", "order", orders).otherwise(fallback).build()
+                .handle(List.of(order, other, untyped), commitFn);
+        Assertions.assertEquals(List.of(other.id(), untyped.id()), fallback.ids);
+        Assertions.assertThrows(IllegalStateException.class, () -> EventRouter.<Object>builder()
+                .route("/type", "order", orders).otherwise(fallback).commitUnmatched().build());
+    }
+
+    @Test
+    void testFieldValuesCompareAcrossPayloadShapes() throws Exception {
+        String json = "{\"a\": {\"b\": [10, 2.5, true, null, {\"c\": \"x\"}]}}";
+        Object map = EventCodec.JSON.mapper().readValue(json, Object.class);
+        Object tree = EventCodec.JSON.mapper().readTree(json);
+        Object lazy = lazy(json).data();
+
+        for (Object payload : List.of(map, tree, lazy)) {
+            Assertions.assertEquals(10L, EventRouter.read(payload, JsonPointer.compile("/a/b/0")));
+            Assertions.assertEquals(2.5, EventRouter.read(payload, JsonPointer.compile("/a/b/1")));
+            Assertions.assertEquals(true, EventRouter.read(payload, JsonPointer.compile("/a/b/2")));
+            Assertions.assertNull(EventRouter.read(payload, JsonPointer.compile("/a/b/3")));
+            Assertions.assertEquals("x", EventRouter.read(payload, JsonPointer.compile("/a/b/4/c")));
+            Assertions.assertEquals("{\"c\":\"x\"}",
+                    EventRouter.read(payload, JsonPointer.compile("/a/b/4")).toString());
+        }
+        Assertions.assertEquals("x", EventRouter.read(new Wrapper("x"), JsonPointer.compile("/name")));
+    }
+
+    @Test
+    void testRoutesRunConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch bothStarted = new CountDownLatch(2);
+            TypedEventsHandler<Object> waiting = (events, commit) -> {
+                bothStarted.countDown();
+                Assertions.assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "routes ran one after another");
+                commit.apply(events.stream().map(EventResponse::id).toList());
+            };
+            EventRouter<Object> router = EventRouter.<Object>builder()
+                    .route("/type", "a", waiting)
+                    .route("/type", "b", (events, commit) -> waiting.handle(events, commit))
+                    .executor(executor)
+                    .build();
+
+            router.handle(List.of(event(Map.of("type", "a")), event(Map.of("type", "b"))), commitFn);
+
+            Assertions.assertEquals(2, committed.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFailureIsRethrownAfterAllRoutes() {
+        Recording<Object> healthy = new Recording<>();
+        IllegalStateException failure = new IllegalStateException("route failed");
+        EventRouter<Object> router = EventRouter.<Object>builder()
+                .route("/type", "a", (events, commit) -> {
+                    throw failure;
+                })
+                .route("/type", "b", healthy)
+                .build();
+        EventResponse<Object> b = event(Map.of("type", "b"));
+
+        EventConsumerException thrown = Assertions.assertThrows(EventConsumerException.class,
+                () -> router.handle(List.of(event(Map.of("type", "a")), b), commitFn));
+
+        Assertions.assertSame(failure, thrown.getCause());
+        Assertions.assertEquals(List.of(b.id()), healthy.ids);
+    }
+
+    private record Wrapper(String name) {
+    }
+
+    private static final class Recording<T> implements TypedEventsHandler<T> {
+        final List<UUID> ids = new ArrayList<>();
+
+        @Override
+        public void handle(List<EventResponse<T>> events, Function<List<UUID>, Integer> commitFn) {
+            events.forEach(event -> ids.add(event.id()));
+        }
+    }
+
+    private static EventResponse<Object> event(Object data) {
+        return new EventResponse<>(UUID.randomUUID(), data, Instant.now());
+    }
+
+    private static EventResponse<LazyPayload> lazy(String json) throws Exception {
+        return new EventResponse<>(UUID.randomUUID(), EventCodec.JSON.mapper().readValue(json, LazyPayload.class),
+                Instant.now());
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.example.pubsubclient.exception.EventPublishingException;
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import static com.example.pubsubclient.TestUtils.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class InFlightBudgetTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private CountDownLatch gate;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final List<Exception> errors = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        gate = new CountDownLatch(1);
+        received.clear();
+        errors.clear();
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/org/topics/topic/events", exchange -> {
+            JsonNode events = EventCodec.JSON.mapper().readTree(exchange.getRequestBody().readAllBytes());
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (JsonNode event : events) {
+                received.add(event.get("data").asText());
+            }
+            sendJson(exchange, 200, Integer.toString(events.size()));
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        server.stop(1);
+    }
+
+    @Test
+    void testFailPolicyRejectsRightAway() throws Exception {
+        try (EventPublisher<String> publisher = publisher(OverflowPolicy.FAIL, 0)) {
+            CompletableFuture<Integer> first = publisher.publishAsync(event("a"));
+            awaitInFlight(publisher);
+
+            Assertions.assertEquals(0, publisher.publish(event("b")));
+            Assertions.assertEquals(1, publisher.inFlight().rejected());
+            Assertions.assertInstanceOf(EventPublishingException.class, errors.get(0));
+            Assertions.assertTrue(publisher.inFlight().inFlightBytes() > 0);
+
+            gate.countDown();
+            Assertions.assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(List.of("a"), received);
+    }
+
+    @Test
+    void testBlockPolicyWaitsForRoom() throws Exception {
+        try (EventPublisher<String> publisher = publisher(OverflowPolicy.BLOCK, 5_000)) {
+            CompletableFuture<Integer> first = publisher.publishAsync(event("a"));
+            awaitInFlight(publisher);
+            CompletableFuture.runAsync(() -> {
+                sleep(300);
+                gate.countDown();
+            });
+
+            Assertions.assertEquals(1, publisher.publish(event("b")));
+            Assertions.assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, publisher.inFlight().waitTime().count());
+            Assertions.assertTrue(publisher.inFlight().waitTime().max() >= TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        Assertions.assertEquals(List.of("a", "b"), received);
+    }
+
+    @Test
+    void testBlockPolicyTimesOut() throws Exception {
+        try (EventPublisher<String> publisher = publisher(OverflowPolicy.BLOCK, 100)) {
+            publisher.publishAsync(event("a"));
+            awaitInFlight(publisher);
+
+            Assertions.assertEquals(0, publisher.publish(event("b")));
+            Assertions.assertEquals(1, publisher.inFlight().timedOut());
+            Assertions.assertInstanceOf(EventPublishingException.class, errors.get(0));
+        }
+    }
+
+    @Test
+    void testDropOldestKeepsNewestQueued() throws Exception {
+        try (EventPublisher<String> publisher = publisher(OverflowPolicy.DROP_OLDEST, 0)) {
+            CompletableFuture<Integer> first = publisher.publishAsync(event("a"));
+            awaitInFlight(publisher);
+            CompletableFuture<Integer> second = publisher.publishAsync(event("b"));
+            CompletableFuture<Integer> third = publisher.publishAsync(event("c"));
+
+            Assertions.assertEquals(0, second.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, publisher.inFlight().dropped());
+            Assertions.assertEquals(1, publisher.inFlight().queuedRequests());
+
+            gate.countDown();
+            Assertions.assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, third.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, publisher.inFlight().inFlightRequests());
+        }
+        Assertions.assertEquals(List.of("a", "c"), received);
+    }
+
+    private EventPublisher<String> publisher(OverflowPolicy overflow, long blockTimeoutMillis) {
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withInFlight(new InFlightConfig(1, 1024 * 1024, overflow, blockTimeoutMillis));
+        return new EventPublisher<>(cfg, new PubSubClient(baseUrl), (e, events) -> errors.add(e));
+    }
+
+    private static EventPublishRequest<String> event(String data) {
+        return new EventPublishRequest<>(data);
+    }
+
+    private static void awaitInFlight(EventPublisher<String> publisher) {
+        Assertions.assertEquals(1, publisher.inFlight().inFlightRequests());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
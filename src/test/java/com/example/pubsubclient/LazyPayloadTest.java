@@ -0,0 +1,70 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.example.pubsubclient.model.EventResponse;
+import com.example.pubsubclient.model.LazyPayload;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+public class LazyPayloadTest {
+
+    private static final String DATA = "{\"orderId\":\"o-1\",\"amount\":12.5,\"lines\":[{\"sku\":\"a\",\"qty\":2}]}";
+
+    record Order(String orderId, double amount, List<Map<String, Object>> lines) {}
+
+    @Test
+    void testPayloadIsDecodedOnDemand() throws IOException {
+        LazyPayload payload = read(EventCodec.JSON);
+
+        Assertions.assertEquals(new Order("o-1", 12.5, List.of(Map.of("sku", "a", "qty", 2))), payload.as(Order.class));
+        Map<String, Object> map = payload.as(new TypeReference<Map<String, Object>>() {});
+        Assertions.assertEquals("o-1", map.get("orderId"));
+        Assertions.assertEquals(DATA, new String(payload.toJson(), StandardCharsets.UTF_8));
+        Assertions.assertEquals(DATA, payload.toString());
+    }
+
+    @Test
+    void testPayloadIsForwardedWithoutDecoding() throws IOException {
+        LazyPayload payload = read(EventCodec.JSON);
+
+        byte[] json = EventCodec.JSON.mapper().writeValueAsBytes(List.of(new EventPublishRequest<>(payload)));
+        Assertions.assertEquals("[{\"data\":" + DATA + "}]", new String(json, StandardCharsets.UTF_8));
+
+        byte[] smile = EventCodec.SMILE.mapper().writeValueAsBytes(List.of(new EventPublishRequest<>(payload)));
+        JsonNode forwarded = EventCodec.SMILE.mapper().readTree(smile).get(0).get("data");
+        Assertions.assertEquals(DATA, forwarded.toString());
+    }
+
+    @Test
+    void testBinaryPayloadIsKeptLazily() throws IOException {
+        LazyPayload payload = read(EventCodec.CBOR);
+
+        Assertions.assertEquals(12.5, payload.as(Order.class).amount());
+        Assertions.assertEquals(DATA, payload.toString());
+    }
+
+    /** Decodes a read response in {@code codec}'s format the way the client does. */
+    private static LazyPayload read(EventCodec codec) throws IOException {
+        Map<String, Object> event = Map.of(
+                "id", "9f320609-0405-44a3-9042-953a353aa40c",
+                "data", EventCodec.JSON.mapper().readValue(DATA, Object.class),
+                "createdAt", "2025-07-01T23:31:05Z");
+        byte[] body = codec.mapper().writeValueAsBytes(List.of(event));
+        CodecContext context = new CodecContext(codec);
+        try (MappingIterator<EventResponse<LazyPayload>> events = context
+                .eventReader(TypeFactory.defaultInstance().constructType(LazyPayload.class))
+                .readValues(body)) {
+            return events.next().data();
+        }
+    }
+}
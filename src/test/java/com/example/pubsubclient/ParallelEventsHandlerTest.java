@@ -0,0 +1,93 @@
+package com.example.pubsubclient;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.pubsubclient.exception.EventConsumerException;
+import com.example.pubsubclient.model.EventResponse;
+
+public class ParallelEventsHandlerTest {
+
+    @Test
+    void testEventsWithSameKeyKeepTheirOrder() throws Exception {
+        List<EventResponse<Object>> events = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            events.add(event(Map.of("key", "k" + (i % 4), "seq", i)));
+        }
+        Map<Object, List<Integer>> seen = new ConcurrentHashMap<>();
+        EventHandler<Object> eventHandler = event -> {
+            Map<?, ?> data = (Map<?, ?>) event.data();
+            Thread.sleep(5);
+            seen.computeIfAbsent(data.get("key"), key -> new CopyOnWriteArrayList<>()).add((Integer) data.get("seq"));
+        };
+        List<UUID> committed = new ArrayList<>();
+
+        try (ParallelEventsHandler<Object> handler = new ParallelEventsHandler<>(eventHandler, ParallelEventsHandlerTest::key, 4)) {
+            handler.handle(events, ids -> {
+                committed.addAll(ids);
+                return ids.size();
+            });
+        }
+
+        Assertions.assertEquals(List.of(0, 4, 8, 12, 16), seen.get("k0"));
+        Assertions.assertEquals(List.of(3, 7, 11, 15, 19), seen.get("k3"));
+        Assertions.assertEquals(events.stream().map(EventResponse::id).toList(), committed);
+    }
+
+    @Test
+    void testDifferentKeysRunInParallel() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        EventHandler<Object> eventHandler = event -> {
+            bothRunning.countDown();
+            if (!bothRunning.await(2, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("events were handled sequentially");
+            }
+        };
+
+        try (ParallelEventsHandler<Object> handler = new ParallelEventsHandler<>(eventHandler, ParallelEventsHandlerTest::key, 2)) {
+            handler.handle(List.of(event(Map.of("key", "a")), event(Map.of("key", "b"))), ids -> ids.size());
+        }
+    }
+
+    @Test
+    void testOnlyContiguousPrefixIsCommittedOnFailure() throws Exception {
+        List<EventResponse<Object>> events = List.of(
+                event(Map.of("key", "a", "fail", false)),
+                event(Map.of("key", "b", "fail", false)),
+                event(Map.of("key", "c", "fail", true)),
+                event(Map.of("key", "d", "fail", false)));
+        EventHandler<Object> eventHandler = event -> {
+            if ((Boolean) ((Map<?, ?>) event.data()).get("fail")) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        List<UUID> committed = new ArrayList<>();
+
+        try (ParallelEventsHandler<Object> handler = new ParallelEventsHandler<>(eventHandler, ParallelEventsHandlerTest::key, 4)) {
+            Assertions.assertThrows(EventConsumerException.class, () -> handler.handle(events, ids -> {
+                committed.addAll(ids);
+                return ids.size();
+            }));
+        }
+
+        Assertions.assertEquals(List.of(events.get(0).id(), events.get(1).id()), committed);
+    }
+
+    private static Object key(EventResponse<Object> event) {
+        return ((Map<?, ?>) event.data()).get("key");
+    }
+
+    private static EventResponse<Object> event(Map<String, Object> data) {
+        return new EventResponse<>(UUID.randomUUID(), data, Instant.now());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.sun.net.httpserver.HttpServer;
+import static com.example.pubsubclient.TestUtils.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PubSubClientBuilderTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private CountDownLatch gate;
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    @BeforeEach
+    void setup() throws IOException {
+        gate = new CountDownLatch(0);
+        concurrent.set(0);
+        maxConcurrent.set(0);
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/org/topics/topic/events", exchange -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrent.decrementAndGet();
+            sendJson(exchange, 200, "1");
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate = new CountDownLatch(0);
+        server.stop(0);
+    }
+
+    @Test
+    void testClientsShareHttpClient() throws Exception {
+        HttpClient shared = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        PubSubClient first = PubSubClient.builder(baseUrl).httpClient(shared).build();
+        PubSubClient second = PubSubClient.builder(baseUrl).httpClient(shared).build();
+
+        Assertions.assertEquals(1, first.publishEvents("org", "topic", events()));
+        Assertions.assertEquals(1, second.publishEvents("org", "topic", events()));
+    }
+
+    @Test
+    void testHttp2FallsBackToHttp11() throws Exception {
+        PubSubClient client = PubSubClient.builder(baseUrl)
+                .http2(true)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(2))
+                .build();
+
+        Assertions.assertEquals(1, client.publishEvents("org", "topic", events()));
+    }
+
+    @Test
+    void testRequestTimeout() {
+        gate = new CountDownLatch(1);
+        PubSubClient client = PubSubClient.builder(baseUrl).requestTimeout(Duration.ofMillis(200)).build();
+
+        Assertions.assertThrows(HttpTimeoutException.class, () -> client.publishEvents("org", "topic", events()));
+    }
+
+    @Test
+    void testConcurrentRequestsAreCapped() throws Exception {
+        gate = new CountDownLatch(1);
+        PubSubClient client = PubSubClient.builder(baseUrl).maxConcurrentRequests(2).build();
+
+        List<CompletableFuture<Integer>> publishes = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            publishes.add(client.publishEventsAsync("org", "topic", events()));
+        }
+        while (concurrent.get() < 2) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        gate.countDown();
+        for (CompletableFuture<Integer> publish : publishes) {
+            Assertions.assertEquals(1, publish.get(5, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertEquals(2, maxConcurrent.get());
+    }
+
+    @Test
+    void testTransportOptionsConflictWithSharedClient() {
+        PubSubClient.Builder builder = PubSubClient.builder(baseUrl).httpClient(HttpClient.newHttpClient()).http2(true);
+
+        Assertions.assertThrows(IllegalStateException.class, builder::build);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> PubSubClient.builder(baseUrl).requestTimeout(Duration.ZERO));
+    }
+
+    @Test
+    void testEndpointsAreBuiltOnce() {
+        Endpoints endpoints = new Endpoints("http://host", "org", "topic", "sub");
+
+        Assertions.assertEquals("http://host/org/topics/topic/events", endpoints.publish().toString());
+        Assertions.assertEquals("http://host/org/topics/topic/subscriptions/sub/event-commits",
+                endpoints.commit().toString());
+        Assertions.assertEquals("http://host/org/topics/topic/subscriptions/sub/events?batchSize=10",
+                endpoints.read(10).toString());
+        Assertions.assertSame(endpoints.read(10), endpoints.read(10));
+        Assertions.assertEquals("batchSize=20", endpoints.read(20).getQuery());
+    }
+
+    private static List<EventPublishRequest<String>> events() {
+        return List.of(new EventPublishRequest<>("payload"));
+    }
+}
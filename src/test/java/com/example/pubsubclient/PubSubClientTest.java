@@ -4,16 +4,26 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.sun.net.httpserver.HttpServer;
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.example.pubsubclient.model.EventResponse;
+import com.example.pubsubclient.exception.EventConflictException;
 import com.example.pubsubclient.exception.EventConsumerException;
+import com.example.pubsubclient.exception.EventPublishingException;
 import static com.example.pubsubclient.TestUtils.*;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -68,6 +78,41 @@ public class PubSubClientTest {
                 List.of(new com.example.pubsubclient.model.EventPublishRequest<>("data"))));
     }
 
+    @Test
+    void testPublishEventsAsync() throws Exception {
+        server.createContext("/org/topics/topic/events", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                sendJson(exchange, 200, "1");
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        int result = client.publishEventsAsync(
+                "org",
+                "topic",
+                List.of(new com.example.pubsubclient.model.EventPublishRequest<>("data")))
+                .get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(1, result);
+    }
+
+    @Test
+    void testPublishEventsAsyncError() throws Exception {
+        server.createContext("/org/topics/topic/events", exchange -> {
+            if (exchange.getRequestMethod().equals("POST")) {
+                sendJson(exchange, 500, "error");
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        var future = client.publishEventsAsync(
+                "org",
+                "topic",
+                List.of(new com.example.pubsubclient.model.EventPublishRequest<>("data")));
+
+        Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    }
+
     @Test
     void testReadEventsSuccess() throws Exception {
         String msg = """
@@ -88,6 +133,32 @@ public class PubSubClientTest {
         Assertions.assertEquals(1, events.size());
     }
 
+    record Greeting(String msg) {}
+
+    @Test
+    void testReadEventsWithPayloadType() throws Exception {
+        String msg = """
+            [{
+                "id": "%s",
+                "data": {"msg": "hello"},
+                "createdAt": "2025-07-01T00:00:00Z"
+            }]
+            """.formatted(UUID.randomUUID());
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                sendJson(exchange, 200, msg);
+            }
+        });
+
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<EventResponse<Greeting>> events = client.readEvents("org", "topic", "sub", 1, Greeting.class);
+
+        Assertions.assertEquals(new Greeting("hello"), events.get(0).data());
+        JavaType type = TypeFactory.defaultInstance().constructType(Greeting.class);
+        CodecContext json = new CodecContext(EventCodec.JSON);
+        Assertions.assertSame(json.eventReader(type), json.eventReader(type));
+    }
+
     @Test
     void testReadEventsError() throws Exception {
         server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> {
@@ -102,6 +173,43 @@ public class PubSubClientTest {
             client.readEvents("org", "topic", "sub", 1));
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {400, 404, 500})
+    void testErrorStatusesThrowTypedExceptions(int status) throws Exception {
+        server.createContext("/org/topics/topic/events", exchange -> sendJson(exchange, status, "\"failed\""));
+        server.createContext("/org/topics/topic/subscriptions/sub/events",
+                exchange -> sendJson(exchange, status, "\"failed\""));
+        server.createContext("/org/topics/topic/subscriptions/sub/event-commits",
+                exchange -> sendJson(exchange, status, "\"failed\""));
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<EventPublishRequest<String>> events = List.of(new EventPublishRequest<>("data"));
+
+        EventPublishingException publish = Assertions.assertThrows(EventPublishingException.class,
+                () -> client.publishEvents("org", "topic", events));
+        ExecutionException publishAsync = Assertions.assertThrows(ExecutionException.class,
+                () -> client.publishEventsAsync("org", "topic", events).get(5, TimeUnit.SECONDS));
+        EventConsumerException read = Assertions.assertThrows(EventConsumerException.class,
+                () -> client.readEvents("org", "topic", "sub", 1));
+        EventConsumerException commit = Assertions.assertThrows(EventConsumerException.class,
+                () -> client.commitEvents("org", "topic", "sub", List.of(UUID.randomUUID())));
+
+        Assertions.assertEquals(status, publish.statusCode());
+        Assertions.assertEquals(status, ((EventPublishingException) publishAsync.getCause()).statusCode());
+        Assertions.assertEquals(status, read.statusCode());
+        Assertions.assertEquals(status, commit.statusCode());
+        if (status == 400) {
+            Assertions.assertEquals("Error on your request:\"failed\"", publish.getMessage());
+        }
+    }
+
+    @Test
+    void testReadConflictThrowsConflictException() {
+        server.createContext("/org/topics/topic/subscriptions/sub/events", exchange -> sendJson(exchange, 409, ""));
+        PubSubClient client = new PubSubClient(baseUrl);
+
+        Assertions.assertThrows(EventConflictException.class, () -> client.readEvents("org", "topic", "sub", 1));
+    }
+
     @Test
     void testCommitEventsSuccess() throws Exception {
         server.createContext("/org/topics/topic/subscriptions/sub/event-commits", exchange -> {
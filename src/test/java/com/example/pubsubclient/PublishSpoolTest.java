@@ -0,0 +1,225 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import static com.example.pubsubclient.TestUtils.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PublishSpoolTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicBoolean down = new AtomicBoolean();
+    private final List<Integer> received = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path spoolDir;
+
+    @BeforeEach
+    void setup() throws IOException {
+        down.set(false);
+        received.clear();
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newSingleThreadExecutor());
+        server.createContext("/org/topics/topic/events", exchange -> {
+            if (down.get()) {
+                sendJson(exchange, 503, "unavailable");
+                return;
+            }
+            JsonNode events = EventCodec.JSON.mapper().readTree(exchange.getRequestBody().readAllBytes());
+            for (JsonNode event : events) {
+                if (event.get("data").asInt() < 0) {
+                    sendJson(exchange, 400, "\"negative\"");
+                    return;
+                }
+            }
+            for (JsonNode event : events) {
+                received.add(event.get("data").asInt());
+            }
+            sendJson(exchange, 200, Integer.toString(events.size()));
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(1);
+    }
+
+    @Test
+    void testOutageIsSpooledAndReplayedInOrder() throws Exception {
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withSpool(new SpoolConfig(spoolDir, 4096, 8, 10, 50L));
+        try (EventPublisher<Integer> publisher = new EventPublisher<>(cfg, client)) {
+            down.set(true);
+            for (int i = 0; i < 50; i++) {
+                Assertions.assertEquals(1, publisher.publish(new EventPublishRequest<>(i)));
+            }
+            Assertions.assertTrue(received.isEmpty());
+
+            Assertions.assertEquals(50, publisher.spooledEvents());
+
+            down.set(false);
+            awaitReceived(50);
+            while (publisher.spooledEvents() > 0) {
+                Thread.sleep(20L);
+            }
+            Assertions.assertEquals(1, publisher.publish(new EventPublishRequest<>(50)));
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i <= 50; i++) {
+            expected.add(i);
+        }
+        Assertions.assertEquals(expected, received);
+    }
+
+    @Test
+    void testRejectedEventsDoNotHoldUpLaterOnes() throws Exception {
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<EventPublishRequest<Integer>> rejected = new CopyOnWriteArrayList<>();
+        List<JsonNode> dropped = new CopyOnWriteArrayList<>();
+        PublishingErrorHandler<Integer> errorHandler = new PublishingErrorHandler<>() {
+            @Override
+            public void onError(Exception e, List<EventPublishRequest<Integer>> events) {
+                rejected.addAll(events);
+            }
+
+            @Override
+            public void onSpooledEventsRejected(Exception e, List<EventPublishRequest<JsonNode>> events) {
+                events.forEach(event -> dropped.add(event.data()));
+            }
+        };
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withSpool(new SpoolConfig(spoolDir, 4096, 8, 10, 50L));
+        try (EventPublisher<Integer> publisher = new EventPublisher<>(cfg, client, errorHandler)) {
+            // a rejected publish is reported rather than spooled
+            Assertions.assertEquals(0, publisher.publish(new EventPublishRequest<>(-1)));
+            Assertions.assertEquals(-1, rejected.get(0).data());
+            Assertions.assertEquals(0, publisher.spooledEvents());
+            Assertions.assertEquals(1, publisher.publish(new EventPublishRequest<>(0)));
+
+            // one queued behind an outage is dropped on replay, the rest of its batch goes through
+            down.set(true);
+            for (int i : new int[] {1, 2, -2, 3, 4}) {
+                Assertions.assertEquals(1, publisher.publish(new EventPublishRequest<>(i)));
+            }
+            down.set(false);
+            awaitReceived(5);
+            while (publisher.spooledEvents() > 0) {
+                Thread.sleep(20L);
+            }
+            Assertions.assertEquals(1, publisher.publish(new EventPublishRequest<>(5)));
+        }
+
+        Assertions.assertEquals(List.of(0, 1, 2, 3, 4, 5), received);
+        Assertions.assertEquals(1, dropped.size());
+        Assertions.assertEquals(-2, dropped.get(0).asInt());
+    }
+
+    @Test
+    void testReplayedSegmentsAreDeleted() throws Exception {
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withSpool(new SpoolConfig(spoolDir, 4096, 8, 1_000, 50L));
+        try (EventPublisher<String> publisher = new EventPublisher<>(cfg, client)) {
+            down.set(true);
+            for (int i = 0; i < 40; i++) {
+                // roughly 300 bytes per record, so the events span several segments
+                publisher.publish(new EventPublishRequest<>(String.valueOf(i).repeat(150)));
+            }
+            Assertions.assertTrue(segments().size() > 1);
+
+            down.set(false);
+            awaitReceived(40);
+            Thread.sleep(200L);
+            Assertions.assertEquals(1, segments().size());
+        }
+    }
+
+    @Test
+    void testFullSpoolReportsEvents() throws Exception {
+        PubSubClient client = new PubSubClient(baseUrl);
+        List<List<EventPublishRequest<String>>> rejected = new CopyOnWriteArrayList<>();
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub")
+                .withSpool(new SpoolConfig(spoolDir, 4096, 1, 10, 60_000L));
+        try (EventPublisher<String> publisher = new EventPublisher<>(cfg, client,
+                (e, events) -> rejected.add(events))) {
+            down.set(true);
+            int accepted = 0;
+            for (int i = 0; i < 40; i++) {
+                accepted += publisher.publish(new EventPublishRequest<>("x".repeat(300)));
+            }
+            Assertions.assertTrue(accepted > 0 && accepted < 40);
+            Assertions.assertTrue(rejected.stream().anyMatch(events -> events.size() == 1));
+        }
+    }
+
+    @Test
+    void testTornRecordIsDroppedOnRecovery() throws Exception {
+        SpoolConfig spool = new SpoolConfig(spoolDir, 4096, 4, 10, 60_000L);
+        PubSubClient client = new PubSubClient(baseUrl);
+        EventPublisherConfig cfg = new EventPublisherConfig("org", "topic", "sub").withSpool(spool);
+        down.set(true);
+        try (EventPublisher<Integer> publisher = new EventPublisher<>(cfg, client)) {
+            for (int i = 0; i < 3; i++) {
+                publisher.publish(new EventPublishRequest<>(i));
+            }
+        }
+        // corrupt the payload of the last record: header, then three records of 8 + 1 bytes
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'9'}), 8 + 2 * 9 + 8);
+        }
+        // files the spool did not write are left alone
+        Files.writeString(spoolDir.resolve("notes.spool"), "not a segment");
+
+        down.set(false);
+        try (EventPublisher<Integer> publisher = new EventPublisher<>(
+                cfg.withSpool(new SpoolConfig(spoolDir, 4096, 4, 10, 50L)), client)) {
+            awaitReceived(2);
+            Thread.sleep(200L);
+            Assertions.assertEquals(0, publisher.spooledEvents());
+        }
+        Assertions.assertTrue(Files.exists(spoolDir.resolve("notes.spool")));
+        Assertions.assertEquals(List.of(0, 1), received);
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (received.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20L);
+        }
+        Assertions.assertEquals(count, received.size());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            return files.filter(path -> path.toString().endsWith(".spool")).sorted().toList();
+        }
+    }
+}
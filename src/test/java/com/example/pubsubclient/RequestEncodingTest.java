@@ -0,0 +1,60 @@
+package com.example.pubsubclient;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.example.pubsubclient.model.EventPublishRequest;
+
+/**
+ * Request bodies are serialized into pooled buffers that are reused once
+ * released. The bytes allocated per event are measured by
+ * {@code PublishEncodingBenchmark} with the GC profiler.
+ */
+public class RequestEncodingTest {
+
+    record Order(String id, String customer, long amount, List<String> items) {}
+
+    @Test
+    void testReleasedBuffersAreReused() throws Exception {
+        List<EventPublishRequest<Order>> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new EventPublishRequest<>(
+                    new Order("order-" + i, "customer-" + i, i * 100L, List.of("sku-1", "sku-2", "sku-3"))));
+        }
+        PubSubClient client = new PubSubClient("http://localhost");
+
+        PooledBuffer first = client.encode(batch, EventCodec.JSON);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        first.writeTo(written);
+        Assertions.assertArrayEquals(EventCodec.JSON.mapper().writeValueAsBytes(batch), written.toByteArray());
+
+        // a buffer still in use by a request is never handed out again
+        PooledBuffer second = client.encode(batch, EventCodec.JSON);
+        Assertions.assertNotSame(first, second);
+
+        client.release(first);
+        client.release(second);
+        PooledBuffer reused = client.encode(List.of(), EventCodec.JSON);
+        Assertions.assertTrue(reused == first || reused == second);
+        Assertions.assertEquals(2, reused.size());
+    }
+
+    @Test
+    void testGrownBuffersAreNotRetained() {
+        BufferPool pool = new BufferPool(4, 16, 64);
+
+        PooledBuffer small = pool.acquire();
+        small.write(new byte[32], 0, 32);
+        pool.release(small);
+        Assertions.assertSame(small, pool.acquire());
+
+        PooledBuffer large = pool.acquire();
+        large.write(new byte[128], 0, 128);
+        pool.release(large);
+        Assertions.assertNotSame(large, pool.acquire());
+    }
+}
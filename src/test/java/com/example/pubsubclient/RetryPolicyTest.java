@@ -0,0 +1,184 @@
+package com.example.pubsubclient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.example.pubsubclient.exception.CircuitOpenException;
+import com.example.pubsubclient.exception.EventPublishingException;
+import com.example.pubsubclient.model.EventPublishRequest;
+import com.sun.net.httpserver.HttpServer;
+import static com.example.pubsubclient.TestUtils.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RetryPolicyTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    /** Statuses to answer with, in order, before answering 200. */
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void setup() throws IOException {
+        statuses.clear();
+        requests.set(0);
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/org/topics/topic/events", exchange -> {
+            requests.incrementAndGet();
+            Integer status = statuses.poll();
+            if (status == null) {
+                sendJson(exchange, 200, "1");
+            } else {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                sendJson(exchange, status, "\"failed\"");
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testRetryableStatusesAreRetried() throws Exception {
+        statuses.addAll(List.of(503, 429));
+        PubSubClient client = new PubSubClient(baseUrl, null, new RetryPolicy(3, 1, 10), null);
+
+        Assertions.assertEquals(1, client.publishEvents("org", "topic", events()));
+
+        Assertions.assertEquals(3, requests.get());
+        Assertions.assertEquals(2, client.metrics().endpoint(Endpoint.PUBLISH).getRetries());
+    }
+
+    @Test
+    void testAsyncPublishIsRetried() throws Exception {
+        statuses.addAll(List.of(502));
+        PubSubClient client = new PubSubClient(baseUrl, null, new RetryPolicy(3, 1, 10), null);
+
+        Assertions.assertEquals(1, client.publishEventsAsync("org", "topic", events()).get(5, TimeUnit.SECONDS));
+
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    @Test
+    void testOtherStatusesAreNotRetried() {
+        statuses.addAll(List.of(400));
+        PubSubClient client = new PubSubClient(baseUrl, null, new RetryPolicy(3, 1, 10), null);
+
+        EventPublishingException thrown = Assertions.assertThrows(EventPublishingException.class,
+                () -> client.publishEvents("org", "topic", events()));
+        Assertions.assertEquals(400, thrown.statusCode());
+
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    @Test
+    void testAttemptsAreLimited() {
+        statuses.addAll(List.of(500, 500, 500, 500));
+        PubSubClient client = new PubSubClient(baseUrl, null, new RetryPolicy(3, 1, 10), null);
+
+        EventPublishingException thrown = Assertions.assertThrows(EventPublishingException.class,
+                () -> client.publishEvents("org", "topic", events()));
+        Assertions.assertEquals(500, thrown.statusCode());
+
+        Assertions.assertEquals(3, requests.get());
+    }
+
+    @Test
+    void testRetryBudgetStopsRetries() {
+        statuses.addAll(List.of(500, 500, 500, 500, 500));
+        RetryPolicy policy = new RetryPolicy(5, 1, 10, 2.0, 1.0, null, 4, 0);
+        PubSubClient client = new PubSubClient(baseUrl, null, policy, null);
+
+        // 4 tokens: the first failure leaves 3 and is retried, the second leaves 2, the threshold
+        Assertions.assertThrows(RuntimeException.class, () -> client.publishEvents("org", "topic", events()));
+        Assertions.assertEquals(2, requests.get());
+
+        Assertions.assertThrows(RuntimeException.class, () -> client.publishEvents("org", "topic", events()));
+        Assertions.assertEquals(3, requests.get());
+    }
+
+    @Test
+    void testBackoffGrowsAndHonoursRetryAfter() {
+        Retrier retrier = new Retrier(new RetryPolicy(5, 100, 1000, 2.0, 0.0, null, 10, 0.1));
+
+        Assertions.assertEquals(100, retrier.backoffMillis(1, null));
+        Assertions.assertEquals(400, retrier.backoffMillis(3, null));
+        Assertions.assertEquals(1000, retrier.backoffMillis(5, null));
+        Assertions.assertEquals(1000, retrier.backoffMillis(1, headers("Retry-After", "30")));
+        Assertions.assertEquals(0, retrier.backoffMillis(1, headers("Retry-After", "Wed, 21 Oct 2015 07:28:00 GMT")));
+        Assertions.assertEquals(100, retrier.backoffMillis(1, headers("Retry-After", "soon")));
+
+        Retrier jittered = new Retrier(new RetryPolicy(5, 100, 1000, 2.0, 0.5, null, 10, 0.1));
+        for (int i = 0; i < 100; i++) {
+            long delay = jittered.backoffMillis(2, null);
+            Assertions.assertTrue(delay >= 100 && delay <= 200, "delay " + delay);
+        }
+    }
+
+    @Test
+    void testCircuitBreakerOpensAndRecovers() throws Exception {
+        statuses.addAll(List.of(500, 500, 500, 500));
+        PubSubClient client = new PubSubClient(baseUrl, null, null, new CircuitBreakerConfig(4, 4, 0.5, 200, 1));
+        CircuitBreaker breaker = client.circuitBreaker(Endpoint.PUBLISH);
+
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertThrows(RuntimeException.class, () -> client.publishEvents("org", "topic", events()));
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        Assertions.assertThrows(CircuitOpenException.class, () -> client.publishEvents("org", "topic", events()));
+        Assertions.assertEquals(4, requests.get());
+        Assertions.assertEquals(1, client.metrics().endpoint(Endpoint.PUBLISH).getShortCircuited());
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, client.circuitBreaker(Endpoint.READ).state());
+
+        Thread.sleep(250);
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        Assertions.assertEquals(1, client.publishEvents("org", "topic", events()));
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void testFailedTrialReopensCircuit() throws Exception {
+        statuses.addAll(List.of(503, 503, 503));
+        PubSubClient client = new PubSubClient(baseUrl, null, null, new CircuitBreakerConfig(2, 2, 1.0, 100, 1));
+        CircuitBreaker breaker = client.circuitBreaker(Endpoint.PUBLISH);
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertThrows(RuntimeException.class, () -> client.publishEvents("org", "topic", events()));
+        }
+        Thread.sleep(150);
+        Assertions.assertThrows(RuntimeException.class, () -> client.publishEvents("org", "topic", events()));
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        Assertions.assertEquals(3, requests.get());
+
+        Thread.sleep(150);
+        Assertions.assertEquals(1, client.publishEvents("org", "topic", events()));
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    private static List<EventPublishRequest<String>> events() {
+        return List.of(new EventPublishRequest<>("payload"));
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        return HttpHeaders.of(Map.of(name, List.of(value)), (n, v) -> true);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.pubsubclient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ThreadModeTest {
+
+    private static final EventConsumerConfig<Object> CONFIG =
+            EventConsumerConfig.of("org", "topic", "sub", 10, 50);
+
+    @Test
+    void testPlatformThreadsByDefault() throws Exception {
+        Assertions.assertEquals(ThreadMode.PLATFORM, CONFIG.threadMode());
+
+        Thread poller = pollingThread(new PubSubClient("http://localhost:1"), CONFIG);
+
+        Assertions.assertFalse(isVirtual(poller));
+    }
+
+    @Test
+    void testVirtualThreads() throws Exception {
+        EventConsumerConfig<Object> config = CONFIG.withThreadMode(ThreadMode.VIRTUAL);
+        if (!ThreadMode.virtualThreadsSupported()) {
+            Assertions.assertThrows(UnsupportedOperationException.class,
+                    () -> new PubSubClient("http://localhost:1", null, null, null, ThreadMode.VIRTUAL));
+            Assertions.assertThrows(UnsupportedOperationException.class,
+                    () -> new EventConsumer<>(new PubSubClient("http://localhost:1"), (events, commit) -> {
+                    }, config));
+            return;
+        }
+        PubSubClient client = new PubSubClient("http://localhost:1", null, null, null, ThreadMode.VIRTUAL);
+
+        Thread poller = pollingThread(client, config);
+
+        Assertions.assertTrue(isVirtual(poller));
+        Assertions.assertTrue(poller.getName().startsWith("pubsub-consumer-sub-"));
+    }
+
+    /** Thread of the first poll, which fails as nothing listens on the port. */
+    private static Thread pollingThread(PubSubClient client, EventConsumerConfig<Object> config) throws Exception {
+        CompletableFuture<Thread> thread = new CompletableFuture<>();
+        try (EventConsumer<Object> consumer = new EventConsumer<>(client, (events, commit) -> {
+        }, config, error -> thread.complete(Thread.currentThread()))) {
+            consumer.start();
+            return thread.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        if (!ThreadMode.virtualThreadsSupported()) {
+            return false;
+        }
+        return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+}